@@ -0,0 +1,68 @@
+//    CreateHoldBenchmark.java
+//    ~~~~~~~~~
+//    This module implements the CreateHoldBenchmark class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol.benchmarks;
+
+import org.fanout.gripcontrol.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the instructions returned to a GRIP proxy for each request:
+ * GripControl.createHoldResponse with a 1 KB JSON response,
+ * createHoldStream, the same hold rendered from a precompiled
+ * HoldTemplate, and createGripChannelHeader, for 1, 10 and 100 channels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateHoldBenchmark {
+    @Param({"1", "10", "100"})
+    public int channelCount;
+
+    private List<Channel> channels;
+    private Response response;
+    private HoldTemplate template;
+
+    @Setup
+    public void setup() throws UnsupportedEncodingException {
+        channels = Payloads.channels(channelCount);
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json");
+        headers.put("Cache-Control", "no-cache");
+        response = new Response(Payloads.text(1024), headers, "200", "OK");
+        template = HoldTemplate.compileResponse(channels, response, 55);
+    }
+
+    @Benchmark
+    public String createHoldResponse() {
+        return GripControl.createHoldResponse(channels, response, 55);
+    }
+
+    @Benchmark
+    public String createHoldStream() {
+        return GripControl.createHoldStream(channels);
+    }
+
+    @Benchmark
+    public String holdTemplate() {
+        return template.render();
+    }
+
+    @Benchmark
+    public String createGripChannelHeader() {
+        return GripControl.createGripChannelHeader(channels);
+    }
+}
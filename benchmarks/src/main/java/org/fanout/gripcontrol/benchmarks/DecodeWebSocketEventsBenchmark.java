@@ -0,0 +1,88 @@
+//    DecodeWebSocketEventsBenchmark.java
+//    ~~~~~~~~~
+//    This module implements the DecodeWebSocketEventsBenchmark class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol.benchmarks;
+
+import org.fanout.gripcontrol.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares GripControl.decodeWebSocketEvents and decodeWebSocketEventViews
+ * with the byte-by-byte CRLF loop used up to 1.2.3, on request bodies of
+ * 1 KB, 64 KB and 4 MB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeWebSocketEventsBenchmark {
+    @Param({"1024", "65536", "4194304"})
+    public int bodySize;
+
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        body = Payloads.webSocketEvents(bodySize);
+    }
+
+    @Benchmark
+    public List<WebSocketEvent> legacyLoop() {
+        return legacyDecode(body);
+    }
+
+    @Benchmark
+    public List<WebSocketEvent> decodeWebSocketEvents() {
+        return GripControl.decodeWebSocketEvents(body);
+    }
+
+    @Benchmark
+    public List<WebSocketEventView> decodeWebSocketEventViews() {
+        return GripControl.decodeWebSocketEventViews(body);
+    }
+
+    /**
+     * The decoding loop of GripControl.decodeWebSocketEvents as of 1.2.3.
+     */
+    static List<WebSocketEvent> legacyDecode(byte[] bytes) {
+        List<WebSocketEvent> events = new ArrayList<>();
+        int byteOffset = 0;
+        while (byteOffset < bytes.length) {
+            int at = -1;
+            for (int i = byteOffset; i < bytes.length - 1; i++) {
+                if (bytes[i] == '\r' && bytes[i+1] == '\n') {
+                    at = i;
+                    break;
+                }
+            }
+            if (at == -1) {
+                throw new IllegalArgumentException("bad format");
+            }
+            String typeline = new String(bytes, byteOffset, at - byteOffset);
+            byteOffset = at + 2;
+
+            WebSocketEvent event;
+            at = typeline.indexOf(" ");
+            if (at >= 0) {
+                String etype = typeline.substring(0, at);
+                int clen = Integer.parseInt(typeline.substring(at + 1), 16);
+                byte[] byteSegment = Arrays.copyOfRange(bytes, byteOffset, byteOffset + clen);
+                byteOffset += clen + 2;
+                event = new WebSocketEvent(etype, byteSegment);
+            } else {
+                event = new WebSocketEvent(typeline);
+            }
+            events.add(event);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,56 @@
+//    EncodeWebSocketEventsBenchmark.java
+//    ~~~~~~~~~
+//    This module implements the EncodeWebSocketEventsBenchmark class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol.benchmarks;
+
+import org.fanout.gripcontrol.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares GripControl.encodeWebSocketEvents, encodeWebSocketEventsBinary
+ * and WebSocketEventEncoder writing into a reused buffer, on response
+ * bodies of 1 KB, 64 KB and 4 MB of TEXT events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodeWebSocketEventsBenchmark {
+    @Param({"1024", "65536", "4194304"})
+    public int bodySize;
+
+    private List<WebSocketEvent> events;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        events = Payloads.textEvents(bodySize);
+        buffer = ByteBuffer.allocate(WebSocketEventEncoder.encodedLength(events));
+    }
+
+    @Benchmark
+    public String encodeWebSocketEvents() {
+        return GripControl.encodeWebSocketEvents(events);
+    }
+
+    @Benchmark
+    public byte[] encodeWebSocketEventsBinary() {
+        return GripControl.encodeWebSocketEventsBinary(events);
+    }
+
+    @Benchmark
+    public int encodeIntoBuffer() {
+        buffer.clear();
+        return WebSocketEventEncoder.encode(events, buffer);
+    }
+}
@@ -0,0 +1,91 @@
+//    FormatExportBenchmark.java
+//    ~~~~~~~~~
+//    This module implements the FormatExportBenchmark class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol.benchmarks;
+
+import org.fanout.gripcontrol.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures export of each format with text and binary content of 64 B,
+ * 1 KB and 64 KB. Formats cache the parts of their export, so the fresh
+ * benchmarks construct a new format each time, as a publisher does for
+ * every message, while the cached benchmarks export the same format
+ * again.
+ * The exportTo benchmarks write the JSON form used by GripPubControl.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatExportBenchmark {
+    @Param({"64", "1024", "65536"})
+    public int contentSize;
+
+    @Param({"text", "binary"})
+    public String content;
+
+    private byte[] bytes;
+    private String text;
+    private Map<String, String> headers;
+    private HttpResponseFormat cached;
+    private GripJsonWriter writer;
+
+    @Setup
+    public void setup() {
+        bytes = content.equals("text") ? Payloads.text(contentSize) : Payloads.binary(contentSize);
+        text = new String(Payloads.text(contentSize), StandardCharsets.UTF_8);
+        headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json");
+        cached = new HttpResponseFormat(bytes, headers, "200", "OK");
+        cached.export();
+        writer = new GripJsonWriter();
+    }
+
+    @Benchmark
+    public Object httpResponse() {
+        return new HttpResponseFormat(bytes, headers, "200", "OK").export();
+    }
+
+    @Benchmark
+    public Object httpResponseCached() {
+        return cached.export();
+    }
+
+    @Benchmark
+    public Object httpStream() {
+        return new HttpStreamFormat(bytes).export();
+    }
+
+    @Benchmark
+    public Object webSocketMessage() {
+        if (content.equals("text"))
+            return new WebSocketMessageFormat(text).export();
+        return new WebSocketMessageFormat(bytes).export();
+    }
+
+    @Benchmark
+    public int httpResponseExportTo() {
+        writer.reset();
+        new HttpResponseFormat(bytes, headers, "200", "OK").exportTo(writer);
+        return writer.toString().length();
+    }
+
+    @Benchmark
+    public int httpStreamExportTo() {
+        writer.reset();
+        new HttpStreamFormat(bytes).exportTo(writer);
+        return writer.toString().length();
+    }
+}
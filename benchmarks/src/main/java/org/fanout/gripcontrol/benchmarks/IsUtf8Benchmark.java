@@ -0,0 +1,45 @@
+//    IsUtf8Benchmark.java
+//    ~~~~~~~~~
+//    This module implements the IsUtf8Benchmark class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol.benchmarks;
+
+import org.fanout.gripcontrol.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Utilities.isUtf8, which decides whether a body is published as
+ * text or base64, on chat-like text and on binary content of 64 B, 1 KB,
+ * 64 KB and 1 MB. Binary content fails on its first byte, so it shows the
+ * cost of the call alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsUtf8Benchmark {
+    @Param({"64", "1024", "65536", "1048576"})
+    public int size;
+
+    @Param({"text", "binary"})
+    public String content;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        bytes = content.equals("text") ? Payloads.text(size) : Payloads.binary(size);
+    }
+
+    @Benchmark
+    public boolean isUtf8() {
+        return Utilities.isUtf8(bytes);
+    }
+}
@@ -0,0 +1,39 @@
+//    ParseGripUriBenchmark.java
+//    ~~~~~~~~~
+//    This module implements the ParseGripUriBenchmark class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol.benchmarks;
+
+import org.fanout.gripcontrol.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures GripControl.parseGripUri on a plain Pushpin URI and on a Fanout
+ * URI with an issuer, a base64 key and an extra query parameter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseGripUriBenchmark {
+    @Param({
+        "http://localhost:5561/",
+        "https://api.fanout.io/realm/myrealm?iss=myrealm&key=base64:Y2hhbmdlbWUtZ3JpcC1zaWduaW5nLWtleQ==&trace=1"
+    })
+    public String uri;
+
+    @Benchmark
+    public Map<String, Object> parseGripUri() throws UnsupportedEncodingException, MalformedURLException {
+        return GripControl.parseGripUri(uri);
+    }
+}
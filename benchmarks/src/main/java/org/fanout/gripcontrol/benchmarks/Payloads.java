@@ -0,0 +1,130 @@
+//    Payloads.java
+//    ~~~~~~~~~
+//    This module implements the Payloads class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol.benchmarks;
+
+import org.fanout.gripcontrol.Channel;
+import org.fanout.gripcontrol.WebSocketEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic payloads shared by the benchmarks.
+ */
+final class Payloads {
+    private static final String TEXT =
+            "{\"from\":\"user-1842\",\"room\":\"lobby\",\"text\":\"Lorem ipsum dolor sit amet, " +
+            "consectetur adipiscing elit, sed do eiusmod tempor \\u00e9t\\u00e9 été ☃\"}";
+
+    private Payloads() {
+    }
+
+    /**
+     * A text payload of the specified size in bytes built from chat-like
+     * JSON messages. Only ASCII and complete UTF-8 sequences are used.
+     */
+    static byte[] text(int size) {
+        byte[] message = TEXT.getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[size];
+        int i = 0;
+        while (i < size) {
+            int n = Math.min(message.length, size - i);
+            System.arraycopy(message, 0, out, i, n);
+            i += n;
+        }
+        // keep the tail ASCII so a truncated multi-byte sequence can't occur
+        for (int j = Math.max(0, size - 4); j < size; j++) {
+            out[j] = ' ';
+        }
+        return out;
+    }
+
+    /**
+     * A binary payload of the specified size that is not valid UTF-8.
+     */
+    static byte[] binary(int size) {
+        byte[] out = new byte[size];
+        new Random(size).nextBytes(out);
+        if (size > 0)
+            out[0] = (byte)0xff;
+        return out;
+    }
+
+    /**
+     * A WebSocket-over-HTTP request body of roughly the specified size
+     * holding an OPEN event followed by TEXT, BINARY and PING events with
+     * content sizes typical of chat traffic.
+     */
+    static byte[] webSocketEvents(int bodySize) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bodySize + 512);
+        writeEvent(out, "OPEN", null);
+        int n = 0;
+        while (out.size() < bodySize) {
+            if (n % 16 == 15) {
+                writeEvent(out, "PING", binary(8));
+            } else if (n % 8 == 7) {
+                writeEvent(out, "BINARY", binary(64 + n % 512));
+            } else {
+                writeEvent(out, "TEXT", text(32 + (n * 37) % 480));
+            }
+            n++;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * WebSocket events that encode to roughly the specified size: an OPEN
+     * event followed by TEXT events with chat-like content, which both the
+     * text and the binary encoders can represent.
+     */
+    static List<WebSocketEvent> textEvents(int bodySize) {
+        List<WebSocketEvent> events = new ArrayList<WebSocketEvent>();
+        events.add(new WebSocketEvent("OPEN"));
+        int size = 6;
+        int n = 0;
+        while (size < bodySize) {
+            byte[] content = text(32 + (n * 37) % 480);
+            events.add(new WebSocketEvent("TEXT", content));
+            size += content.length + 11;
+            n++;
+        }
+        return events;
+    }
+
+    /**
+     * The specified number of channels named like per-user feeds, every
+     * other one with a previous ID.
+     */
+    static List<Channel> channels(int count) {
+        List<Channel> channels = new ArrayList<Channel>(count);
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0)
+                channels.add(new Channel("user-" + (1000 + i) + "-feed"));
+            else
+                channels.add(new Channel("user-" + (1000 + i) + "-feed", "evt-" + (48211 + i)));
+        }
+        return channels;
+    }
+
+    private static void writeEvent(ByteArrayOutputStream out, String type, byte[] content) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        out.write(typeBytes, 0, typeBytes.length);
+        if (content != null) {
+            byte[] length = (" " + Integer.toHexString(content.length)).getBytes(StandardCharsets.US_ASCII);
+            out.write(length, 0, length.length);
+            out.write('\r');
+            out.write('\n');
+            out.write(content, 0, content.length);
+        }
+        out.write('\r');
+        out.write('\n');
+    }
+}
@@ -0,0 +1,116 @@
+//    PublishChannelsBenchmark.java
+//    ~~~~~~~~~
+//    This module implements the PublishChannelsBenchmark class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol.benchmarks;
+
+import com.google.gson.Gson;
+import org.fanout.gripcontrol.*;
+import org.fanout.pubcontrol.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU cost and the request size of publishing one 1 KB HTTP
+ * response to a growing number of channels. GripPubControl serializes the
+ * item once and copies its bytes for each channel; the baseline builds
+ * the request the way PubControlClient does, exporting the item and
+ * serializing it with Gson for every channel. Nothing is sent: the
+ * endpoint's transport only counts the bytes it would send, which are reported as the
+ * wireBytes counter alongside the number of publishes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublishChannelsBenchmark {
+    @Param({"1", "10", "100", "500"})
+    public int channelCount;
+
+    private List<String> channels;
+    private HttpResponseFormat format;
+    private GripPubControl pubControl;
+    private CountingTransport transport;
+    private final Gson gson = new Gson();
+
+    /**
+     * Bytes that would be sent, reported per iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireBytes {
+        public long wireBytes;
+        public long publishes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            wireBytes = 0;
+            publishes = 0;
+        }
+    }
+
+    private static final class CountingTransport implements PublishTransport {
+        private static final Response OK = new Response(200, "Published");
+
+        long bytes;
+
+        public Response publish(URL url, String authHeader, byte[] body) throws IOException {
+            bytes += body.length;
+            return OK;
+        }
+
+        public void close() {
+        }
+    }
+
+    @Setup
+    public void setup() {
+        channels = new ArrayList<String>();
+        for (int i = 0; i < channelCount; i++) {
+            channels.add("user-" + (100000 + i));
+        }
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json");
+        format = new HttpResponseFormat(Payloads.text(1024), headers, "200", "OK");
+        pubControl = new GripPubControl();
+        transport = new CountingTransport();
+        PublishEndpoint endpoint = new PublishEndpoint("http://localhost:5561");
+        endpoint.setTransport(transport);
+        pubControl.addEndpoint(endpoint);
+    }
+
+    @Benchmark
+    public void gripPubControl(WireBytes counters) throws PublishFailedException {
+        long before = transport.bytes;
+        pubControl.publishHttpResponse(channels, format);
+        counters.wireBytes += transport.bytes - before;
+        counters.publishes++;
+    }
+
+    @Benchmark
+    public byte[] gsonPerChannel(WireBytes counters) {
+        Item item = new Item(Collections.<Format>singletonList(format), null, null);
+        List<Map<String, Object>> items = new ArrayList<Map<String, Object>>();
+        for (String channel : channels) {
+            Map<String, Object> export = item.export();
+            export.put("channel", channel);
+            items.add(export);
+        }
+        Map<String, Object> request = new HashMap<String, Object>();
+        request.put("items", items);
+        byte[] body = gson.toJson(request).getBytes(StandardCharsets.UTF_8);
+        counters.wireBytes += body.length;
+        counters.publishes++;
+        return body;
+    }
+}
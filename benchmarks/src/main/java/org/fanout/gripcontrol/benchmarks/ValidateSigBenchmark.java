@@ -0,0 +1,66 @@
+//    ValidateSigBenchmark.java
+//    ~~~~~~~~~
+//    This module implements the ValidateSigBenchmark class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol.benchmarks;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.fanout.gripcontrol.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares GripControl.validateSig with a reusable GripSigValidator on a
+ * Grip-Sig token as issued by Pushpin.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidateSigBenchmark {
+    private String key;
+    private String token;
+    private String badToken;
+    private GripSigValidator validator;
+
+    @Setup
+    public void setup() {
+        byte[] rawKey = "changeme-grip-signing-key".getBytes(StandardCharsets.UTF_8);
+        key = Base64.getEncoder().encodeToString(rawKey);
+        token = Jwts.builder().setIssuer("pushpin")
+                .setExpiration(new Date(System.currentTimeMillis() + 3600000))
+                .signWith(SignatureAlgorithm.HS256, rawKey).compact();
+        badToken = token.substring(0, token.length() - 4) + "AAAA";
+        validator = new GripSigValidator(key);
+    }
+
+    @Benchmark
+    public boolean validateSig() {
+        return GripControl.validateSig(token, key);
+    }
+
+    @Benchmark
+    public boolean validateSigInvalid() {
+        return GripControl.validateSig(badToken, key);
+    }
+
+    @Benchmark
+    public GripSigValidator.Result validator() {
+        return validator.validate(token);
+    }
+
+    @Benchmark
+    public GripSigValidator.Result validatorInvalid() {
+        return validator.validate(badToken);
+    }
+}
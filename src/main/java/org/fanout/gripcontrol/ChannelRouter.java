@@ -0,0 +1,136 @@
+//    ChannelRouter.java
+//    ~~~~~~~~~
+//    This module implements the ChannelRouter class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Assigns each channel to one of a set of endpoints by consistent hashing,
+ * so that adding or removing an endpoint only moves the channels it gains
+ * or loses. Each endpoint is placed on a hash ring at the specified number
+ * of virtual nodes, hashed from its URI and the node number, and a channel
+ * belongs to the endpoint of the first node at or after the channel's
+ * hash. Publishers configured with the same endpoint URIs therefore agree
+ * on the owner of every channel. Channels starting with a mapped prefix
+ * belong to the endpoint of the longest such prefix instead. Instances
+ * can't be modified and can be shared between threads.
+ */
+public final class ChannelRouter {
+    private final long[] hashes;
+    private final PublishEndpoint[] owners;
+    private final String[] prefixes;
+    private final PublishEndpoint[] prefixOwners;
+
+    /**
+     * Initialize with the endpoints, the number of virtual nodes for each
+     * endpoint, and an optional mapping of channel prefixes to endpoints.
+     */
+    public ChannelRouter(List<PublishEndpoint> endpoints, int virtualNodes,
+            Map<String, PublishEndpoint> prefixes) {
+        if (virtualNodes < 1)
+            throw new IllegalArgumentException("virtual nodes must be positive");
+        final long[] nodeHashes = new long[endpoints.size() * virtualNodes];
+        final PublishEndpoint[] nodeOwners = new PublishEndpoint[nodeHashes.length];
+        Integer[] order = new Integer[nodeHashes.length];
+        int node = 0;
+        for (PublishEndpoint endpoint : endpoints) {
+            for (int i = 0; i < virtualNodes; i++) {
+                nodeHashes[node] = hash(endpoint.getUri() + "#" + i);
+                nodeOwners[node] = endpoint;
+                order[node] = node;
+                node++;
+            }
+        }
+        // a stable sort, so that equal hashes go to the earlier endpoint
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Long.compare(nodeHashes[a], nodeHashes[b]);
+            }
+        });
+        this.hashes = new long[order.length];
+        this.owners = new PublishEndpoint[order.length];
+        for (int i = 0; i < order.length; i++) {
+            this.hashes[i] = nodeHashes[order[i]];
+            this.owners[i] = nodeOwners[order[i]];
+        }
+
+        List<Map.Entry<String, PublishEndpoint>> entries = new ArrayList<Map.Entry<String, PublishEndpoint>>();
+        if (prefixes != null) {
+            for (Map.Entry<String, PublishEndpoint> entry : prefixes.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null)
+                    throw new IllegalArgumentException("prefixes and their endpoints must not be null");
+                entries.add(entry);
+            }
+        }
+        // longest prefix first
+        Collections.sort(entries, new Comparator<Map.Entry<String, PublishEndpoint>>() {
+            public int compare(Map.Entry<String, PublishEndpoint> a, Map.Entry<String, PublishEndpoint> b) {
+                return b.getKey().length() - a.getKey().length();
+            }
+        });
+        this.prefixes = new String[entries.size()];
+        this.prefixOwners = new PublishEndpoint[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            this.prefixes[i] = entries.get(i).getKey();
+            this.prefixOwners[i] = entries.get(i).getValue();
+        }
+    }
+
+    /**
+     * The endpoint that owns the specified channel, or null if there are
+     * no endpoints and no prefix matches.
+     */
+    public PublishEndpoint route(String channel) {
+        for (int i = 0; i < this.prefixes.length; i++) {
+            if (channel.startsWith(this.prefixes[i]))
+                return this.prefixOwners[i];
+        }
+        if (this.hashes.length == 0)
+            return null;
+        int index = Arrays.binarySearch(this.hashes, hash(channel));
+        if (index < 0) {
+            index = -index - 1;
+            if (index == this.hashes.length)
+                index = 0;
+        } else {
+            // the first of any nodes with an equal hash
+            while (index > 0 && this.hashes[index - 1] == this.hashes[index]) {
+                index--;
+            }
+        }
+        return this.owners[index];
+    }
+
+    /**
+     * The 64-bit FNV-1a hash of the UTF-8 encoding of the specified string,
+     * finalized with the MurmurHash3 mix so that similar strings spread
+     * over the whole ring.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        int length = value.length();
+        int i = 0;
+        while (i < length && value.charAt(i) < 0x80) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            i++;
+        }
+        if (i < length) {
+            byte[] rest = value.substring(i).getBytes(StandardCharsets.UTF_8);
+            for (byte b : rest) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
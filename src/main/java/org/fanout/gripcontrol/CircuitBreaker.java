@@ -0,0 +1,148 @@
+//    CircuitBreaker.java
+//    ~~~~~~~~~
+//    This module implements the CircuitBreaker class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending requests to an endpoint that keeps failing. After the
+ * specified number of consecutive failures the circuit opens and
+ * requests fail immediately. Once the specified time has passed, a single
+ * probe request is let through: if it succeeds the circuit closes again,
+ * and if it fails the circuit stays open for another period.
+ */
+public final class CircuitBreaker {
+    /**
+     * The state of a circuit breaker.
+     */
+    public enum State {
+        /**
+         * Requests are sent.
+         */
+        CLOSED,
+        /**
+         * Requests fail without being sent.
+         */
+        OPEN,
+        /**
+         * A probe request is being sent.
+         */
+        HALF_OPEN
+    }
+
+    private static final LongSupplier NANO_TIME = new LongSupplier() {
+        public long getAsLong() {
+            return System.nanoTime();
+        }
+    };
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+
+    /**
+     * Initialize with the number of consecutive failures that opens the
+     * circuit and the time in milliseconds before probing.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, NANO_TIME);
+    }
+
+    /**
+     * Initialize with a clock giving the time in nanoseconds, in place of
+     * System.nanoTime. Used by tests.
+     */
+    CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        if (failureThreshold < 1)
+            throw new IllegalArgumentException("failure threshold must be positive");
+        if (openMillis < 0)
+            throw new IllegalArgumentException("open time must not be negative");
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * Whether a request may be sent now. When this returns true, the
+     * outcome must be reported with recordSuccess or recordFailure.
+     */
+    public boolean allowRequest() {
+        this.lock.lock();
+        try {
+            switch (this.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (this.clock.getAsLong() - this.openedAt < this.openNanos)
+                        return false;
+                    this.state = State.HALF_OPEN;
+                    this.probing = true;
+                    return true;
+                default:
+                    if (this.probing)
+                        return false;
+                    this.probing = true;
+                    return true;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Report that a request succeeded, closing the circuit.
+     */
+    public void recordSuccess() {
+        this.lock.lock();
+        try {
+            this.state = State.CLOSED;
+            this.failures = 0;
+            this.probing = false;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Report that a request failed, opening the circuit if the probe
+     * failed or too many requests failed in a row.
+     */
+    public void recordFailure() {
+        this.lock.lock();
+        try {
+            this.probing = false;
+            if (this.state == State.HALF_OPEN || ++this.failures >= this.failureThreshold) {
+                this.state = State.OPEN;
+                this.openedAt = this.clock.getAsLong();
+                this.failures = 0;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * The current state. An open circuit whose time has passed is reported
+     * as open until a request probes it.
+     */
+    public State getState() {
+        this.lock.lock();
+        try {
+            return this.state;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+//    CountingPublishMetrics.java
+//    ~~~~~~~~~
+//    This module implements the CountingPublishMetrics class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publish metrics recorded in LongAdder counters, which stay cheap under
+ * contention and allocate nothing once an endpoint has been seen. Request
+ * latencies are counted in a histogram per endpoint whose buckets double
+ * in width, so percentiles are accurate to within a factor of two. The
+ * counters can be read at any time, for example to be exported to a
+ * metrics library.
+ */
+public class CountingPublishMetrics implements PublishMetrics {
+    private final LongAdder serializedRequests = new LongAdder();
+    private final LongAdder serializedItems = new LongAdder();
+    private final LongAdder serializedBytes = new LongAdder();
+    private final ConcurrentHashMap<PublishEndpoint, EndpointMetrics> endpoints =
+            new ConcurrentHashMap<PublishEndpoint, EndpointMetrics>();
+
+    /**
+     * The metrics of one endpoint.
+     */
+    public static final class EndpointMetrics {
+        // bucket i counts latencies below 2^i microseconds, the last one
+        // everything longer
+        private static final int BUCKETS = 32;
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder items = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder queueDepth = new LongAdder();
+        private final LongAdder totalLatencyNanos = new LongAdder();
+        private final LongAdder[] latencies = new LongAdder[BUCKETS];
+
+        EndpointMetrics() {
+            for (int i = 0; i < BUCKETS; i++) {
+                this.latencies[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * The number of requests sent, including retries.
+         */
+        public long getRequests() {
+            return this.requests.sum();
+        }
+
+        /**
+         * The number of requests that succeeded.
+         */
+        public long getSuccesses() {
+            return this.successes.sum();
+        }
+
+        /**
+         * The number of requests that failed.
+         */
+        public long getFailures() {
+            return this.failures.sum();
+        }
+
+        /**
+         * The number of retries.
+         */
+        public long getRetries() {
+            return this.retries.sum();
+        }
+
+        /**
+         * The number of requests rejected by the circuit breaker.
+         */
+        public long getRejections() {
+            return this.rejections.sum();
+        }
+
+        /**
+         * The number of items sent, including retries.
+         */
+        public long getItems() {
+            return this.items.sum();
+        }
+
+        /**
+         * The number of body bytes sent, including retries.
+         */
+        public long getBytes() {
+            return this.bytes.sum();
+        }
+
+        /**
+         * The number of requests being sent.
+         */
+        public long getInFlight() {
+            return this.inFlight.sum();
+        }
+
+        /**
+         * The number of asynchronous publishes waiting to be sent.
+         */
+        public long getQueueDepth() {
+            return this.queueDepth.sum();
+        }
+
+        /**
+         * The total latency of completed requests in nanoseconds.
+         */
+        public long getTotalLatencyNanos() {
+            return this.totalLatencyNanos.sum();
+        }
+
+        /**
+         * The number of completed requests in each latency bucket, where
+         * bucket i holds latencies below 2^i microseconds and at least
+         * half that, and the last bucket holds all longer latencies.
+         */
+        public long[] getLatencyHistogram() {
+            long[] histogram = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = this.latencies[i].sum();
+            }
+            return histogram;
+        }
+
+        /**
+         * An upper bound in nanoseconds of the latency below which the
+         * specified fraction of completed requests fall, or zero if no
+         * request has completed.
+         */
+        public long getLatencyPercentileNanos(double fraction) {
+            long[] histogram = getLatencyHistogram();
+            long total = 0;
+            for (long count : histogram) {
+                total += count;
+            }
+            if (total == 0)
+                return 0;
+            long rank = (long)Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                seen += histogram[i];
+                if (seen >= rank)
+                    return TimeUnit.MICROSECONDS.toNanos(1L << i);
+            }
+            return Long.MAX_VALUE;
+        }
+
+        void recordLatency(long latencyNanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+            int bucket = 64 - Long.numberOfLeadingZeros(micros);
+            this.latencies[Math.min(bucket, BUCKETS - 1)].increment();
+            this.totalLatencyNanos.add(latencyNanos);
+        }
+    }
+
+    /**
+     * The number of request bodies serialized.
+     */
+    public long getSerializedRequests() {
+        return this.serializedRequests.sum();
+    }
+
+    /**
+     * The number of items in the request bodies serialized.
+     */
+    public long getSerializedItems() {
+        return this.serializedItems.sum();
+    }
+
+    /**
+     * The number of bytes serialized.
+     */
+    public long getSerializedBytes() {
+        return this.serializedBytes.sum();
+    }
+
+    /**
+     * The metrics of the specified endpoint. Endpoints that haven't been
+     * used yet have all counters at zero.
+     */
+    public EndpointMetrics getEndpointMetrics(PublishEndpoint endpoint) {
+        return get(endpoint);
+    }
+
+    /**
+     * The metrics of every endpoint used so far.
+     */
+    public Map<PublishEndpoint, EndpointMetrics> getAllEndpointMetrics() {
+        return Collections.unmodifiableMap(this.endpoints);
+    }
+
+    public void serialized(int items, int bytes) {
+        this.serializedRequests.increment();
+        this.serializedItems.add(items);
+        this.serializedBytes.add(bytes);
+    }
+
+    public void requestStarted(PublishEndpoint endpoint, int items, int bytes) {
+        EndpointMetrics metrics = get(endpoint);
+        metrics.requests.increment();
+        metrics.items.add(items);
+        metrics.bytes.add(bytes);
+        metrics.inFlight.increment();
+    }
+
+    public void requestCompleted(PublishEndpoint endpoint, long latencyNanos, boolean success) {
+        EndpointMetrics metrics = get(endpoint);
+        metrics.inFlight.decrement();
+        (success ? metrics.successes : metrics.failures).increment();
+        metrics.recordLatency(latencyNanos);
+    }
+
+    public void retried(PublishEndpoint endpoint) {
+        get(endpoint).retries.increment();
+    }
+
+    public void rejected(PublishEndpoint endpoint) {
+        get(endpoint).rejections.increment();
+    }
+
+    public void queueDepthChanged(PublishEndpoint endpoint, int delta) {
+        get(endpoint).queueDepth.add(delta);
+    }
+
+    private EndpointMetrics get(PublishEndpoint endpoint) {
+        EndpointMetrics metrics = this.endpoints.get(endpoint);
+        if (metrics == null) {
+            metrics = new EndpointMetrics();
+            EndpointMetrics existing = this.endpoints.putIfAbsent(endpoint, metrics);
+            if (existing != null)
+                metrics = existing;
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,97 @@
+//    ExportCache.java
+//    ~~~~~~~~~
+//    This module implements the ExportCache class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The memoized export of a format, together with snapshots of the field
+ * values it was computed from. A format keeps the last instance and reuses
+ * it as long as its fields still hold the same contents, so both assigning
+ * a field and changing an array or map in place invalidate it. Formats
+ * pass copies of their arrays and maps, which the cache owns. The JSON
+ * form and the base64 of binary content are each produced on first use,
+ * while the exported map is built anew on each call from those parts so
+ * that callers can modify it. Instances can be shared between threads
+ * without locking: threads racing on first use may each compute the same
+ * result, and one of them is kept.
+ */
+abstract class ExportCache {
+    private final Object first;
+    private final Object second;
+    private final Object third;
+    private final Object fourth;
+    private volatile String json;
+    private volatile String base64;
+
+    /**
+     * Initialize with snapshots of up to four field values, which are
+     * compared by content.
+     */
+    ExportCache(Object first, Object second, Object third, Object fourth) {
+        this.first = first;
+        this.second = second;
+        this.third = third;
+        this.fourth = fourth;
+    }
+
+    /**
+     * Whether the export was computed from field values with the same
+     * contents as the specified ones.
+     */
+    boolean matches(Object first, Object second, Object third, Object fourth) {
+        return Objects.deepEquals(this.first, first) && Objects.deepEquals(this.second, second) &&
+                Objects.deepEquals(this.third, third) && Objects.deepEquals(this.fourth, fourth);
+    }
+
+    /**
+     * A new exported map, which the caller may modify.
+     */
+    Map<String, Object> export() {
+        return buildExport();
+    }
+
+    /**
+     * The exported message serialized as JSON.
+     */
+    String json() {
+        String json = this.json;
+        if (json == null) {
+            GripJsonWriter writer = new GripJsonWriter();
+            writeExport(writer);
+            json = writer.toString();
+            this.json = json;
+        }
+        return json;
+    }
+
+    /**
+     * The base64 encoding of the binary content of the export, which must
+     * be the same array each time.
+     */
+    String base64(byte[] content) {
+        String base64 = this.base64;
+        if (base64 == null) {
+            base64 = Base64.getEncoder().encodeToString(content);
+            this.base64 = base64;
+        }
+        return base64;
+    }
+
+    /**
+     * Build a new exported map.
+     */
+    abstract Map<String, Object> buildExport();
+
+    /**
+     * Write the exported message as JSON.
+     */
+    abstract void writeExport(GripJsonWriter writer);
+}
@@ -7,15 +7,15 @@
 
 package org.fanout.gripcontrol;
 
-import com.google.gson.Gson;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
 
-import javax.xml.bind.DatatypeConverter;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -27,23 +27,55 @@ import java.util.*;
  * encoding/decoding web socket events and generating control messages.
  */
 public class GripControl {
+    private static volatile GripControlMetrics metrics;
+
+    /**
+     * Report measurements of signature validation, WebSocket event
+     * decoding and encoding, and hold creation to the specified metrics,
+     * or stop reporting them if it is null, which is the default. Without
+     * metrics these operations measure nothing.
+     */
+    public static void setMetrics(GripControlMetrics metrics) {
+        GripControl.metrics = metrics;
+    }
+
+    /**
+     * The metrics measurements are reported to, or null.
+     */
+    public static GripControlMetrics getMetrics() {
+        return GripControl.metrics;
+    }
+
     /**
      * Create GRIP hold instructions for the specified parameters including a timeout.
      * To disable the timeout pass 0.
      */
     public static String createHold(String mode, List<Channel> channels, Response response, int timeout) {
-        Map<String, Object> hold = new HashMap<String, Object>();
-        hold.put("mode", mode);
-        List<Map<String, Object>> holdChannels = getHoldChannels(channels);
-        hold.put("channels", holdChannels);
+        GripControlMetrics metrics = GripControl.metrics;
+        if (metrics == null)
+            return writeHold(mode, channels, response, timeout);
+        long start = System.nanoTime();
+        String hold = writeHold(mode, channels, response, timeout);
+        metrics.holdCreated(mode, channels.size(), System.nanoTime() - start);
+        return hold;
+    }
+
+    private static String writeHold(String mode, List<Channel> channels, Response response, int timeout) {
+        GripJsonWriter writer = new GripJsonWriter();
+        writer.beginObject();
+        writer.name("hold").beginObject();
+        writer.name("mode").value(mode);
+        writer.name("channels");
+        writeHoldChannels(writer, channels);
         if (timeout > 0)
-            hold.put("timeout", timeout);
-        Map<String, Object> instruct = new HashMap<String, Object>();
-        instruct.put("hold", hold);
-        Map<String, Object> holdResponse = getHoldResponse(response);
-        if (holdResponse != null)
-            instruct.put("response", holdResponse);
-        return new Gson().toJson(instruct);
+            writer.name("timeout").value(timeout);
+        writer.endObject();
+        if (response != null) {
+            writer.name("response");
+            writeHoldResponse(writer, response);
+        }
+        writer.endObject();
+        return writer.toString();
     }
 
     /**
@@ -123,16 +155,18 @@ public class GripControl {
      * includes subscribing/unsubscribing a WebSocket connection to/from a channel.
      */
     public static String webSocketControlMessage(String type, Map<String, Object> args) {
-        Map<String, Object> out;
+        GripJsonWriter writer = new GripJsonWriter();
+        writer.beginObject();
         if (args != null) {
-            out = args;
-        } else {
-            out = new HashMap<String, Object>();
+            for (Map.Entry<String, Object> entry : args.entrySet()) {
+                if (entry.getValue() != null && !"type".equals(entry.getKey()))
+                    writer.name(entry.getKey()).value(entry.getValue());
+            }
         }
-        out.put("type", type);
-        String message = new Gson().toJson(out);
-        out.remove("type");
-        return message;
+        if (type != null)
+            writer.name("type").value(type);
+        writer.endObject();
+        return writer.toString();
     }
 
     /**
@@ -158,7 +192,7 @@ public class GripControl {
             params.remove("key");
         }
         if (key != null && key.startsWith("base64:"))
-            key = new String(DatatypeConverter.parseBase64Binary(key.substring(7)));
+            key = new String(Utilities.decodeBase64(key.substring(7)));
         String queryString = "";
 	    for (Map.Entry<String, List<String>> entry : params.entrySet()) {
             if (queryString != "")
@@ -187,16 +221,35 @@ public class GripControl {
      * Validate the specified JWT token and key.
      * This method is used to validate the GRIP-SIG header coming from GRIP
      * proxies such as Pushpin or Fastly Fanout. Note that the token expiration
-     * is also verified.
+     * is also verified. When validating many tokens against the same key,
+     * a GripSigValidator constructed once is considerably cheaper.
      */
     public static boolean validateSig(String token, String key) {
+        GripControlMetrics metrics = GripControl.metrics;
+        if (metrics == null)
+            return checkSig(token, key).isValid();
+        long start = System.nanoTime();
+        GripSigValidator.Result result = checkSig(token, key);
+        metrics.signatureValidated(System.nanoTime() - start, result);
+        return result.isValid();
+    }
+
+    private static GripSigValidator.Result checkSig(String token, String key) {
         try {
-            Jwts.parser().setSigningKey(DatatypeConverter.parseBase64Binary(key))
+            Jwts.parser().setSigningKey(Utilities.decodeBase64(key))
                     .parseClaimsJws(token).getBody();
+        } catch (ExpiredJwtException exception) {
+            return GripSigValidator.Result.EXPIRED;
+        } catch (PrematureJwtException exception) {
+            return GripSigValidator.Result.NOT_YET_VALID;
+        } catch (SignatureException exception) {
+            return GripSigValidator.Result.INVALID_SIGNATURE;
+        } catch (UnsupportedJwtException exception) {
+            return GripSigValidator.Result.UNSUPPORTED_ALGORITHM;
         } catch (Exception exception) {
-            return false;
+            return GripSigValidator.Result.MALFORMED;
         }
-        return true;
+        return GripSigValidator.Result.VALID;
     }
 
     /**
@@ -205,44 +258,51 @@ public class GripControl {
      * body of an HTTP response when using the WebSocket-over-HTTP protocol.
      */
     public static String encodeWebSocketEvents(List<WebSocketEvent> webSocketEvents) {
-        String out = "";
+        GripControlMetrics metrics = GripControl.metrics;
+        if (metrics == null)
+            return encodeEvents(webSocketEvents);
+        long start = System.nanoTime();
+        String out = encodeEvents(webSocketEvents);
+        long nanos = System.nanoTime() - start;
+        metrics.eventsEncoded(webSocketEvents.size(), Utilities.utf8Length(out), nanos);
+        return out;
+    }
+
+    private static String encodeEvents(List<WebSocketEvent> webSocketEvents) {
+        int capacity = 0;
         for (WebSocketEvent event : webSocketEvents) {
-            out = out + event.type;
+            capacity += event.type.length() + 2;
             if (event.content != null)
-                out = out + " " + Integer.toString(event.content.getBytes().length, 16) + "\r\n" + event.content + "\r\n";
-            else {
-                out = out + "\r\n";
+                capacity += event.content.length() + 12;
+        }
+        StringBuilder out = new StringBuilder(capacity);
+        for (WebSocketEvent event : webSocketEvents) {
+            out.append(event.type);
+            if (event.content != null) {
+                out.append(' ').append(Integer.toHexString(Utilities.utf8Length(event.content)))
+                        .append("\r\n").append(event.content).append("\r\n");
+            } else {
+                out.append("\r\n");
             }
         }
-        return out;
+        return out.toString();
     }
 
     /**
      * Encode the specified array of WebSocketEvent instances as a byte array.
      * The returned string value should then be passed to a GRIP proxy in the
      * body of an HTTP response when using the WebSocket-over-HTTP protocol.
+     * See WebSocketEventEncoder for encoding into an existing buffer,
+     * stream or channel.
      */
     public static byte[] encodeWebSocketEventsBinary(List<WebSocketEvent> webSocketEvents) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-        try {
-            for (WebSocketEvent event : webSocketEvents) {
-                out.write(event.type.getBytes(StandardCharsets.UTF_8));
-
-                if (event.contentBytes != null) {
-                    out.write(' ');
-                    out.write(
-                        Integer.toString(event.contentBytes.length, 16).getBytes(StandardCharsets.UTF_8)
-                    );
-                    out.write(new byte[]{'\r', '\n'});
-                    out.write(event.contentBytes);
-                }
-                out.write(new byte[]{'\r', '\n'});
-            }
-        } catch (IOException ex) {
-            //
-        }
-        return out.toByteArray();
+        GripControlMetrics metrics = GripControl.metrics;
+        if (metrics == null)
+            return WebSocketEventEncoder.encode(webSocketEvents);
+        long start = System.nanoTime();
+        byte[] out = WebSocketEventEncoder.encode(webSocketEvents);
+        metrics.eventsEncoded(webSocketEvents.size(), out.length, System.nanoTime() - start);
+        return out;
     }
 
     /**
@@ -262,33 +322,68 @@ public class GripControl {
      *              to be encoded as UTF-8
      */
     public static List<WebSocketEvent> decodeWebSocketEvents(byte[] bytes) {
-        List<WebSocketEvent> events = new ArrayList<>();
+        List<WebSocketEventView> views = decodeWebSocketEventViews(bytes);
+        List<WebSocketEvent> events = new ArrayList<>(views.size());
+        for (WebSocketEventView view : views) {
+            events.add(view.toEvent());
+        }
+        return events;
+    }
+
+    /**
+     * Decode the request body into an array of WebSocketEventView instances.
+     * The views share the specified byte array instead of copying each
+     * event's content, and only decode the content into a String when it is
+     * first requested. A RuntimeError is raised if the format is invalid.
+     * @param bytes a byte array representing the request body. This is expected
+     *              to be encoded as UTF-8 and must not be modified while the
+     *              returned views are in use
+     */
+    public static List<WebSocketEventView> decodeWebSocketEventViews(byte[] bytes) {
+        GripControlMetrics metrics = GripControl.metrics;
+        if (metrics == null)
+            return decodeEventViews(bytes);
+        long start = System.nanoTime();
+        List<WebSocketEventView> events;
+        try {
+            events = decodeEventViews(bytes);
+        } catch (RuntimeException e) {
+            metrics.decodeFailed(bytes.length, e);
+            throw e;
+        }
+        long nanos = System.nanoTime() - start;
+        for (WebSocketEventView event : events) {
+            metrics.eventDecoded(event.getType());
+        }
+        metrics.eventsDecoded(bytes.length, events.size(), nanos);
+        return events;
+    }
+
+    private static List<WebSocketEventView> decodeEventViews(byte[] bytes) {
+        List<WebSocketEventView> events = new ArrayList<>();
+        ByteBuffer words = WebSocketEventParser.wordView(bytes);
         int byteOffset = 0;
         while (byteOffset < bytes.length) {
-            // find \r followed by \n
-            int at = -1;
-            for (int i = byteOffset; i < bytes.length - 1; i++) {
-                if (bytes[i] == '\r' && bytes[i+1] == '\n') {
-                    at = i;
-                    break;
-                }
-            }
+            int at = WebSocketEventParser.indexOfCrlf(bytes, words, byteOffset, bytes.length);
             if (at == -1) {
                 throw new IllegalArgumentException("bad format");
             }
-            String typeline = new String(bytes, byteOffset, at - byteOffset);
-            byteOffset = at + 2;
+            int space = WebSocketEventParser.indexOfSpace(bytes, byteOffset, at);
 
-            WebSocketEvent event;
-            at = typeline.indexOf(" ");
-            if (at >= 0) {
-                String etype = typeline.substring(0, at);
-                int clen = Integer.parseInt(typeline.substring(at + 1), 16);
-                byte[] byteSegment = Arrays.copyOfRange(bytes, byteOffset, byteOffset + clen);
+            WebSocketEventView event;
+            if (space >= 0) {
+                String etype = WebSocketEventParser.parseType(bytes, byteOffset, space - byteOffset);
+                int clen = WebSocketEventParser.parseHexLength(bytes, space + 1, at - space - 1);
+                byteOffset = at + 2;
+                if (clen > bytes.length - byteOffset) {
+                    throw new IllegalArgumentException("bad format");
+                }
+                event = new WebSocketEventView(etype, bytes, byteOffset, clen);
                 byteOffset += clen + 2;
-                event = new WebSocketEvent(etype, byteSegment);
             } else {
-                event = new WebSocketEvent(typeline);
+                event = new WebSocketEventView(
+                        WebSocketEventParser.parseType(bytes, byteOffset, at - byteOffset));
+                byteOffset = at + 2;
             }
             events.add(event);
         }
@@ -296,44 +391,41 @@ public class GripControl {
     }
 
     /**
-     * Get an array of hashes representing the specified channels parameter.
+     * Write an array representing the specified channels parameter.
      * The resulting array is used for creating GRIP proxy hold instructions.
      */
-    private static List<Map<String, Object>> getHoldChannels(List<Channel> channels) {
-        List<Map<String, Object>> holdChannels = new ArrayList<Map<String, Object>>();
+    private static void writeHoldChannels(GripJsonWriter writer, List<Channel> channels) {
+        writer.beginArray();
         for (Channel channel : channels) {
-            Map<String, Object> holdChannel = new HashMap<String, Object>();
-            holdChannel.put("name", channel.name);
+            writer.beginObject();
+            writer.name("name").value(channel.name);
             if (channel.prevId != null)
-                holdChannel.put("prev-id", channel.prevId);
-            holdChannels.add(holdChannel);
+                writer.name("prev-id").value(channel.prevId);
+            writer.endObject();
         }
-        return holdChannels;
+        writer.endArray();
     }
 
     /**
-     * Get a hash representing the specified response parameter.
-     * The resulting hash is used for creating GRIP proxy hold instructions.
+     * Write an object representing the specified response parameter.
+     * The resulting object is used for creating GRIP proxy hold instructions.
      */
-    private static Map<String, Object> getHoldResponse(Response response) {
-        if (response == null)
-            return null;
-        Map<String, Object> holdResponse = new HashMap<String, Object>();
+    static void writeHoldResponse(GripJsonWriter writer, Response response) {
+        writer.beginObject();
         if (response.code != null)
-            holdResponse.put("code", response.code);
+            writer.name("code").value(response.code);
         if (response.reason != null)
-            holdResponse.put("reason", response.reason);
+            writer.name("reason").value(response.reason);
         if (response.headers != null)
-            holdResponse.put("headers", response.headers);
+            writer.name("headers").value(response.headers);
         if (response.body != null) {
-            if (Utilities.isUtf8(response.body)) {
-                try {
-                    holdResponse.put("body", new String(response.body, "utf-8"));
-                } catch (UnsupportedEncodingException e) { }
+            String text = Utilities.utf8BytesToString(response.body);
+            if (text != null) {
+                writer.name("body").value(text);
             } else {
-                holdResponse.put("body-bin", DatatypeConverter.printBase64Binary(response.body));
+                writer.name("body-bin").base64Value(response.body);
             }
         }
-        return holdResponse;
+        writer.endObject();
     }
 }
@@ -0,0 +1,61 @@
+//    GripControlMetrics.java
+//    ~~~~~~~~~
+//    This module implements the GripControlMetrics interface.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+/**
+ * Receives measurements of the GripControl operations run on each request
+ * from a GRIP proxy: signature validation, WebSocket-over-HTTP event
+ * decoding and encoding, and hold instruction generation. Register an
+ * implementation with GripControl.setMetrics. Every method does nothing by
+ * default, so an implementation only overrides what it needs. The methods
+ * are called on the request threads, so they must be thread safe and
+ * fast. Times are measured only while metrics are registered.
+ */
+public interface GripControlMetrics {
+    /**
+     * GripControl.validateSig validated a token in the specified time with
+     * the specified result, which tells why validation failed.
+     */
+    default void signatureValidated(long nanos, GripSigValidator.Result result) {
+    }
+
+    /**
+     * A request body of the specified size was decoded into the specified
+     * number of events in the specified time. Called after eventDecoded
+     * was called for each of the events.
+     */
+    default void eventsDecoded(int bytes, int events, long nanos) {
+    }
+
+    /**
+     * An event of the specified type was decoded.
+     */
+    default void eventDecoded(String type) {
+    }
+
+    /**
+     * Decoding a request body of the specified size failed with the
+     * specified error, which is then thrown to the caller.
+     */
+    default void decodeFailed(int bytes, RuntimeException error) {
+    }
+
+    /**
+     * The specified number of events were encoded into a response body of
+     * the specified size in UTF-8 in the specified time.
+     */
+    default void eventsEncoded(int events, int bytes, long nanos) {
+    }
+
+    /**
+     * Hold instructions with the specified mode and number of channels
+     * were created in the specified time.
+     */
+    default void holdCreated(String mode, int channels, long nanos) {
+    }
+}
@@ -0,0 +1,22 @@
+//    GripFormat.java
+//    ~~~~~~~~~
+//    This module implements the GripFormat interface.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import org.fanout.pubcontrol.Format;
+
+/**
+ * A publishing format that can write its export directly as JSON.
+ * The JSON written by exportTo must be equivalent to the serialized
+ * result of export, which is still used by code that expects a map.
+ */
+public interface GripFormat extends Format {
+    /**
+     * Write the exported message as a JSON value to the specified writer.
+     */
+    void exportTo(GripJsonWriter writer);
+}
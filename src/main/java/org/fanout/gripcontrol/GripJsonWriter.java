@@ -0,0 +1,356 @@
+//    GripJsonWriter.java
+//    ~~~~~~~~~
+//    This module implements the GripJsonWriter class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A small streaming JSON writer for GRIP instructions and format exports.
+ * Values are written directly to a StringBuilder without building
+ * intermediate maps or reflecting over objects. Strings are escaped the
+ * same way as Gson's default configuration so that the output matches what
+ * this library produced when serializing through Gson. Maps written through
+ * value(Object) omit null values, also matching Gson. Instances are not
+ * thread-safe, but can be reused after calling reset.
+ */
+public class GripJsonWriter {
+    private static final Gson GSON = new Gson();
+
+    private static final String[] REPLACEMENT_CHARS = new String[128];
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            REPLACEMENT_CHARS[i] = String.format("\\u%04x", i);
+        }
+        REPLACEMENT_CHARS['"'] = "\\\"";
+        REPLACEMENT_CHARS['\\'] = "\\\\";
+        REPLACEMENT_CHARS['\t'] = "\\t";
+        REPLACEMENT_CHARS['\b'] = "\\b";
+        REPLACEMENT_CHARS['\n'] = "\\n";
+        REPLACEMENT_CHARS['\r'] = "\\r";
+        REPLACEMENT_CHARS['\f'] = "\\f";
+        REPLACEMENT_CHARS['<'] = "\\u003c";
+        REPLACEMENT_CHARS['>'] = "\\u003e";
+        REPLACEMENT_CHARS['&'] = "\\u0026";
+        REPLACEMENT_CHARS['='] = "\\u003d";
+        REPLACEMENT_CHARS['\''] = "\\u0027";
+    }
+
+    private final StringBuilder out;
+    private boolean[] needsComma = new boolean[8];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Initialize with a new StringBuilder.
+     */
+    public GripJsonWriter() {
+        this(new StringBuilder(128));
+    }
+
+    /**
+     * Initialize with the StringBuilder to append to.
+     */
+    public GripJsonWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    /**
+     * Begin a JSON object.
+     */
+    public GripJsonWriter beginObject() {
+        beforeValue();
+        push();
+        this.out.append('{');
+        return this;
+    }
+
+    /**
+     * End the current JSON object.
+     */
+    public GripJsonWriter endObject() {
+        pop();
+        this.out.append('}');
+        return this;
+    }
+
+    /**
+     * Begin a JSON array.
+     */
+    public GripJsonWriter beginArray() {
+        beforeValue();
+        push();
+        this.out.append('[');
+        return this;
+    }
+
+    /**
+     * End the current JSON array.
+     */
+    public GripJsonWriter endArray() {
+        pop();
+        this.out.append(']');
+        return this;
+    }
+
+    /**
+     * Write the name of the next member of the current object.
+     */
+    public GripJsonWriter name(String name) {
+        if (this.depth == 0 || this.afterName)
+            throw new IllegalStateException("name not expected");
+        separate();
+        quote(this.out, name);
+        this.out.append(':');
+        this.afterName = true;
+        return this;
+    }
+
+    /**
+     * Write a string value, or null.
+     */
+    public GripJsonWriter value(String value) {
+        if (value == null)
+            return nullValue();
+        beforeValue();
+        quote(this.out, value);
+        return this;
+    }
+
+    /**
+     * Write a byte array as a base64 encoded string value, or null.
+     * The encoding is streamed into the output without building the
+     * intermediate base64 string. Padding is escaped the same way as
+     * value(String) would escape it.
+     */
+    public GripJsonWriter base64Value(byte[] value) {
+        if (value == null)
+            return nullValue();
+        beforeValue();
+        this.out.ensureCapacity(this.out.length() + (value.length + 2) / 3 * 4 + 14);
+        this.out.append('"');
+        OutputStream encoder = Base64.getEncoder().wrap(new Base64Sink(this.out));
+        try {
+            encoder.write(value);
+            encoder.close();
+        } catch (IOException e) {
+            // the sink doesn't throw
+            throw new IllegalStateException(e);
+        }
+        this.out.append('"');
+        return this;
+    }
+
+    /**
+     * Write a number value.
+     */
+    public GripJsonWriter value(long value) {
+        beforeValue();
+        this.out.append(value);
+        return this;
+    }
+
+    /**
+     * Write a boolean value.
+     */
+    public GripJsonWriter value(boolean value) {
+        beforeValue();
+        this.out.append(value);
+        return this;
+    }
+
+    /**
+     * Write a null value.
+     */
+    public GripJsonWriter nullValue() {
+        beforeValue();
+        this.out.append("null");
+        return this;
+    }
+
+    /**
+     * Write an arbitrary value. Strings, numbers, booleans, maps,
+     * collections, arrays of objects and GripFormat instances are written
+     * directly. Any other object is serialized with a shared Gson instance.
+     */
+    @SuppressWarnings("unchecked")
+    public GripJsonWriter value(Object value) {
+        if (value == null) {
+            return nullValue();
+        } else if (value instanceof String) {
+            return value((String)value);
+        } else if (value instanceof Number) {
+            return numberValue((Number)value);
+        } else if (value instanceof Boolean) {
+            return value(((Boolean)value).booleanValue());
+        } else if (value instanceof Map) {
+            beginObject();
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>)value).entrySet()) {
+                if (entry.getValue() != null)
+                    name(String.valueOf(entry.getKey())).value(entry.getValue());
+            }
+            return endObject();
+        } else if (value instanceof Iterable) {
+            beginArray();
+            for (Object element : (Iterable<Object>)value) {
+                value(element);
+            }
+            return endArray();
+        } else if (value instanceof Object[]) {
+            beginArray();
+            for (Object element : (Object[])value) {
+                value(element);
+            }
+            return endArray();
+        } else if (value instanceof GripFormat) {
+            ((GripFormat)value).exportTo(this);
+            return this;
+        }
+        return rawValue(GSON.toJson(value));
+    }
+
+    /**
+     * Write a value that is already serialized as JSON.
+     */
+    public GripJsonWriter rawValue(CharSequence json) {
+        beforeValue();
+        this.out.append(json);
+        return this;
+    }
+
+    /**
+     * Discard everything written so far.
+     */
+    public void reset() {
+        this.out.setLength(0);
+        this.depth = 0;
+        this.afterName = false;
+    }
+
+    /**
+     * The StringBuilder being written to.
+     */
+    public StringBuilder getBuilder() {
+        return this.out;
+    }
+
+    /**
+     * The JSON written so far.
+     */
+    @Override
+    public String toString() {
+        return this.out.toString();
+    }
+
+    /**
+     * The JSON written so far encoded as UTF-8.
+     */
+    public byte[] toBytes() {
+        return toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Append the specified value to the specified builder as a quoted and
+     * escaped JSON string.
+     */
+    public static void quote(StringBuilder out, String value) {
+        out.append('"');
+        int last = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c < 128) {
+                replacement = REPLACEMENT_CHARS[c];
+                if (replacement == null)
+                    continue;
+            } else if (c == '\u2028') {
+                replacement = "\\u2028";
+            } else if (c == '\u2029') {
+                replacement = "\\u2029";
+            } else {
+                continue;
+            }
+            if (last < i)
+                out.append(value, last, i);
+            out.append(replacement);
+            last = i + 1;
+        }
+        if (last < length)
+            out.append(value, last, length);
+        out.append('"');
+    }
+
+    private GripJsonWriter numberValue(Number value) {
+        if (value instanceof Double || value instanceof Float) {
+            double d = value.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d))
+                throw new IllegalArgumentException("JSON forbids NaN and infinities: " + value);
+        }
+        beforeValue();
+        this.out.append(value.toString());
+        return this;
+    }
+
+    private void beforeValue() {
+        if (this.afterName) {
+            this.afterName = false;
+            return;
+        }
+        separate();
+    }
+
+    private void separate() {
+        if (this.depth > 0) {
+            if (this.needsComma[this.depth - 1])
+                this.out.append(',');
+            this.needsComma[this.depth - 1] = true;
+        }
+    }
+
+    private void push() {
+        if (this.depth == this.needsComma.length)
+            this.needsComma = Arrays.copyOf(this.needsComma, this.depth * 2);
+        this.needsComma[this.depth++] = false;
+    }
+
+    private void pop() {
+        if (this.depth == 0 || this.afterName)
+            throw new IllegalStateException("nothing to close");
+        this.depth--;
+    }
+
+    // appends the ASCII output of a base64 encoder to the JSON output
+    private static final class Base64Sink extends OutputStream {
+        private final StringBuilder out;
+
+        Base64Sink(StringBuilder out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) {
+            if (b == '=')
+                this.out.append(REPLACEMENT_CHARS['=']);
+            else
+                this.out.append((char)b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+    }
+}
@@ -8,8 +8,12 @@
 package org.fanout.gripcontrol;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 import org.fanout.pubcontrol.*;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Allows consumers to publish HTTP format messages to GRIP proxies.
@@ -17,8 +21,33 @@ import java.io.UnsupportedEncodingException;
  * PubControl in that the 'uri' and 'iss' keys in each config entry
  * should have a 'control_' prefix. GripPubControl inherits from PubControl
  * and therefore also provides all of the same functionality.
+ * Configured endpoints are published to with a PublishEndpoint rather than
+ * a PubControlClient: the body of each publish request is serialized once
+ * and the same bytes are sent to every endpoint, unless channels are
+ * sharded across the endpoints with setSharding. Clients added with
+ * addClient are still published to individually.
  */
 public class GripPubControl extends PubControl {
+    private final List<PublishEndpoint> endpoints = new CopyOnWriteArrayList<PublishEndpoint>();
+    private final List<PubControlClient> clients = new CopyOnWriteArrayList<PubControlClient>();
+    private int maxBatchItems = 1;
+    private long batchLingerMillis;
+    private int maxBatchBytes = Integer.MAX_VALUE;
+    private int maxQueued;
+    private OverflowPolicy overflowPolicy;
+    private volatile boolean virtualThreads;
+    private volatile long publishTimeoutNanos;
+    private PublishTransport transport;
+    private RetryPolicy retryPolicy;
+    private int circuitFailureThreshold;
+    private long circuitOpenMillis;
+    private int virtualNodes;
+    private final Map<String, PublishEndpoint> channelPrefixes = new HashMap<String, PublishEndpoint>();
+    private volatile ChannelRouter router;
+    private volatile Executor completionExecutor;
+    private volatile PublishMetrics metrics = PublishMetrics.NONE;
+    private static ScheduledExecutorService timer;
+
     /**
      * Initialize with or without a configuration.
      * A configuration can be applied after initialization via the applyGripConfig method.
@@ -40,28 +69,633 @@ public class GripPubControl extends PubControl {
     /**
      * Apply the specified configuration to this GripPubControl instance.
      * The configuration object can either be a hash or an array of hashes where
-     * each hash corresponds to a single PubControlClient instance. Each hash
-     * will be parsed and a PubControlClient will be created either using just
-     * a URI or a URI and JWT authentication information.
+     * each hash corresponds to a single endpoint. Each hash will be parsed
+     * and an endpoint will be created either using just a URI or a URI and
+     * JWT authentication information. The key can be a byte array or, as
+     * produced by GripControl.parseGripUri, a string.
      */
-    @SuppressWarnings({"unchecked"})
     public void applyGripConfig(List<Map<String, Object>> config) {
-       for (Map<String, Object> entry : config) {
-           String uri = null;
-           if (entry.get("control_uri") != null)
-               uri = (String)entry.get("control_uri");
-           PubControlClient client = new PubControlClient(uri);
-           Object iss = entry.get("control_iss");
-           Object key = entry.get("key");
-           if (iss != null && key != null) {
-               Map<String, Object> claims = new HashMap<String, Object>();
-               claims.put("iss", (String)iss);
-               client.setAuthJwt(claims, (byte[])key);
-           } else if (key != null) {
-               client.setAuthBearer((String)key);
-           }
-           super.addClient(client);
-       }
+        for (Map<String, Object> entry : config) {
+            addEndpoint(createEndpoint((String)entry.get("control_uri"),
+                    entry.get("control_iss"), entry.get("key")));
+        }
+    }
+
+    /**
+     * Apply the specified PubControl configuration, in which the 'uri' and
+     * 'iss' keys have no 'control_' prefix.
+     */
+    @Override
+    public void applyConfig(List<Map<String, Object>> config) {
+        for (Map<String, Object> entry : config) {
+            addEndpoint(createEndpoint((String)entry.get("uri"), entry.get("iss"), entry.get("key")));
+        }
+    }
+
+    /**
+     * Add an endpoint to publish to. Settings made with the setters of
+     * GripPubControl that apply to each endpoint, such as batching or a
+     * retry policy, are applied to it.
+     */
+    public synchronized void addEndpoint(PublishEndpoint endpoint) {
+        if (this.maxBatchItems > 1)
+            endpoint.setBatching(this.maxBatchItems, this.batchLingerMillis, this.maxBatchBytes);
+        if (this.overflowPolicy != null)
+            endpoint.setQueueLimit(this.maxQueued, this.overflowPolicy);
+        if (this.virtualThreads)
+            endpoint.setVirtualThreads(true);
+        if (this.transport != null)
+            endpoint.setTransport(this.transport);
+        if (this.retryPolicy != null)
+            endpoint.setRetryPolicy(this.retryPolicy);
+        if (this.circuitFailureThreshold > 0)
+            endpoint.setCircuitBreaker(this.circuitFailureThreshold, this.circuitOpenMillis);
+        if (this.metrics != PublishMetrics.NONE)
+            endpoint.setMetrics(this.metrics);
+        this.endpoints.add(endpoint);
+        updateRouter();
+    }
+
+    /**
+     * Coalesce asynchronous publishes into multi-item requests to each
+     * endpoint, holding at most the specified number of items or bytes
+     * and sent at most the specified time after the oldest publish in it.
+     * Each publish still has its own callback called once its request
+     * completes. Applies to current endpoints and endpoints added later.
+     * See PublishEndpoint.setBatching.
+     */
+    public synchronized void setBatching(int maxItems, long lingerMillis, int maxBytes) {
+        for (PublishEndpoint endpoint : this.endpoints) {
+            endpoint.setBatching(maxItems, lingerMillis, maxBytes);
+        }
+        this.maxBatchItems = maxItems;
+        this.batchLingerMillis = lingerMillis;
+        this.maxBatchBytes = maxBytes;
+    }
+
+    /**
+     * Limit the number of asynchronous publishes waiting to be sent to each
+     * endpoint, so that a slow or unreachable endpoint can't let them pile
+     * up without bound. The policy decides whether a publish that finds a
+     * queue full waits for room or fails one of the publishes through its
+     * callback. Since each endpoint has its own queue, a publish can be
+     * dropped by one endpoint and sent by another, in which case its
+     * callback reports the failure. Applies to current endpoints and
+     * endpoints added later. See PublishEndpoint.setQueueLimit.
+     */
+    public synchronized void setQueueLimit(int maxQueued, OverflowPolicy policy) {
+        if (maxQueued < 1)
+            throw new IllegalArgumentException("queue limit must be positive");
+        if (policy == null)
+            throw new IllegalArgumentException("overflow policy must not be null");
+        for (PublishEndpoint endpoint : this.endpoints) {
+            endpoint.setQueueLimit(maxQueued, policy);
+        }
+        this.maxQueued = maxQueued;
+        this.overflowPolicy = policy;
+    }
+
+    /**
+     * The number of asynchronous publishes waiting to be sent, summed over
+     * all endpoints.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (PublishEndpoint endpoint : this.endpoints) {
+            depth += endpoint.getQueueDepth();
+        }
+        return depth;
+    }
+
+    /**
+     * Wait up to the specified time for the asynchronous publishes queued
+     * for every endpoint to be sent. Returns whether all queues were
+     * drained in time. Clients added with addClient are not waited for.
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean flushed = true;
+        for (PublishEndpoint endpoint : this.endpoints) {
+            flushed &= endpoint.flush(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        return flushed;
+    }
+
+    /**
+     * Stop accepting asynchronous publishes and spend up to the specified
+     * time, in total, sending those already queued for every endpoint.
+     * Publishes still queued afterwards fail with a "closed" error. Returns
+     * whether every queued publish was sent. Clients added with addClient
+     * are not affected.
+     */
+    public boolean close(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (PublishEndpoint endpoint : this.endpoints) {
+            endpoint.stopAccepting();
+        }
+        boolean flushed = true;
+        for (PublishEndpoint endpoint : this.endpoints) {
+            flushed &= endpoint.close(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        return flushed;
+    }
+
+    /**
+     * Send asynchronous publishes to each endpoint from a virtual thread
+     * rather than a platform thread, if the JDK supports virtual threads,
+     * so that many endpoints don't need as many platform threads. On older
+     * JDKs platform threads are still used. Applies to current endpoints
+     * and endpoints added later. Returns whether virtual threads will be
+     * used. Synchronous publishes run on the calling thread, which can
+     * itself be virtual: the publish path uses locks rather than
+     * synchronized blocks, so it doesn't pin the carrier thread.
+     */
+    public synchronized boolean setVirtualThreads(boolean enabled) {
+        for (PublishEndpoint endpoint : this.endpoints) {
+            endpoint.setVirtualThreads(enabled);
+        }
+        this.virtualThreads = enabled;
+        return enabled && Threads.isVirtualSupported();
+    }
+
+    /**
+     * Send requests to every endpoint with the specified transport, such
+     * as a PooledHttpTransport to reuse connections. Applies to current
+     * endpoints and endpoints added later. The transport is not closed by
+     * GripPubControl.
+     */
+    public synchronized void setTransport(PublishTransport transport) {
+        for (PublishEndpoint endpoint : this.endpoints) {
+            endpoint.setTransport(transport);
+        }
+        this.transport = transport;
+    }
+
+    /**
+     * Retry failed requests to each endpoint according to the specified
+     * policy, or not at all if it is null. Each endpoint keeps its own
+     * retry budget, and since endpoints send asynchronous publishes
+     * independently, retries to one endpoint don't hold up the others.
+     * Applies to current endpoints and endpoints added later. See
+     * RetryPolicy.
+     */
+    public synchronized void setRetryPolicy(RetryPolicy retryPolicy) {
+        for (PublishEndpoint endpoint : this.endpoints) {
+            endpoint.setRetryPolicy(retryPolicy);
+        }
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Give each endpoint its own circuit breaker, which opens after the
+     * specified number of failed requests in a row and probes the
+     * endpoint again after the specified time in milliseconds. A threshold
+     * of zero turns circuit breaking off. Applies to current endpoints and
+     * endpoints added later. See PublishEndpoint.setCircuitBreaker.
+     */
+    public synchronized void setCircuitBreaker(int failureThreshold, long openMillis) {
+        for (PublishEndpoint endpoint : this.endpoints) {
+            endpoint.setCircuitBreaker(failureThreshold, openMillis);
+        }
+        this.circuitFailureThreshold = failureThreshold;
+        this.circuitOpenMillis = openMillis;
+    }
+
+    /**
+     * Report measurements of publishing, such as request latencies, bytes
+     * serialized and queue depths, to the specified metrics, for example a
+     * CountingPublishMetrics. Applies to current endpoints and endpoints
+     * added later. See PublishMetrics.
+     */
+    public synchronized void setMetrics(PublishMetrics metrics) {
+        if (metrics == null)
+            throw new IllegalArgumentException("metrics must not be null");
+        for (PublishEndpoint endpoint : this.endpoints) {
+            endpoint.setMetrics(metrics);
+        }
+        this.metrics = metrics;
+    }
+
+    /**
+     * Complete the futures returned by the asynchronous publish methods on
+     * the specified executor rather than on the thread that sent the
+     * request, so that dependent stages can't hold up publishing. Null
+     * completes them on the sending thread, which is the default.
+     */
+    public void setCompletionExecutor(Executor executor) {
+        this.completionExecutor = executor;
+    }
+
+    /**
+     * Shard channels across the endpoints rather than publishing every
+     * item to all of them: each channel is owned by one endpoint, chosen
+     * by consistent hashing with the specified number of virtual nodes
+     * per endpoint, and an item is only sent to the owners of its
+     * channels. A few hundred virtual nodes spread channels evenly. Zero
+     * turns sharding off. Clients added with addClient still receive every
+     * item. See ChannelRouter.
+     */
+    public synchronized void setSharding(int virtualNodes) {
+        if (virtualNodes < 0)
+            throw new IllegalArgumentException("virtual nodes must not be negative");
+        this.virtualNodes = virtualNodes;
+        updateRouter();
+    }
+
+    /**
+     * With sharding, route channels starting with the specified prefix to
+     * the specified endpoint rather than by hash. The longest matching
+     * prefix wins. A null endpoint removes the prefix.
+     */
+    public synchronized void setChannelPrefix(String prefix, PublishEndpoint endpoint) {
+        if (prefix == null)
+            throw new IllegalArgumentException("prefix must not be null");
+        if (endpoint == null)
+            this.channelPrefixes.remove(prefix);
+        else
+            this.channelPrefixes.put(prefix, endpoint);
+        updateRouter();
+    }
+
+    /**
+     * The router used for sharding, or null if sharding is off.
+     */
+    public ChannelRouter getRouter() {
+        return this.router;
+    }
+
+    private void updateRouter() {
+        this.router = this.virtualNodes > 0 ?
+                new ChannelRouter(this.endpoints, this.virtualNodes, this.channelPrefixes) : null;
+    }
+
+    /**
+     * The endpoints published to.
+     */
+    public List<PublishEndpoint> getEndpoints() {
+        return Collections.unmodifiableList(this.endpoints);
+    }
+
+    /**
+     * Add a client to publish to. Each client serializes published items
+     * separately, so prefer addEndpoint.
+     */
+    @Override
+    public void addClient(PubControlClient client) {
+        this.clients.add(client);
+    }
+
+    /**
+     * Remove all endpoints, clients and channel prefixes.
+     */
+    @Override
+    public synchronized void removeAllClients() {
+        this.endpoints.clear();
+        this.clients.clear();
+        this.channelPrefixes.clear();
+        updateRouter();
+    }
+
+    /**
+     * Wait for all asynchronous publishes to complete.
+     */
+    @Override
+    public void finish() {
+        for (PublishEndpoint endpoint : this.endpoints) {
+            endpoint.finish();
+        }
+        for (PubControlClient client : this.clients) {
+            client.finish();
+        }
+    }
+
+    /**
+     * Synchronously publish an item to the specified channels on every
+     * endpoint and client. The item is serialized once for all endpoints.
+     * The endpoints and clients are published to in parallel, so a slow
+     * one doesn't delay the others, and a failing one doesn't stop the
+     * item from being published to the others; the first failure is
+     * thrown once all have completed or timed out.
+     */
+    @Override
+    public void publish(List<String> channels, Item item) throws PublishFailedException {
+        PublishFailedException error = publishWithResult(channels, item).getFirstError();
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * Synchronously publish an item, as with publish, and return the
+     * outcome on each endpoint and client rather than throwing.
+     */
+    public PublishResult publishWithResult(final List<String> channels, final Item item) {
+        List<Delivery> deliveries = deliveries(channels, item);
+        List<PubControlClient> clients = new ArrayList<PubControlClient>(this.clients);
+        int count = deliveries.size() + clients.size();
+        final PublishEndpoint[] endpoints = new PublishEndpoint[count];
+        final PubControlClient[] targetClients = new PubControlClient[count];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(count);
+        for (final Delivery delivery : deliveries) {
+            endpoints[tasks.size()] = delivery.endpoint;
+            tasks.add(new Callable<Void>() {
+                public Void call() throws PublishFailedException {
+                    delivery.endpoint.publish(delivery.body, delivery.itemCount);
+                    return null;
+                }
+            });
+        }
+        for (final PubControlClient client : clients) {
+            targetClients[tasks.size()] = client;
+            tasks.add(new Callable<Void>() {
+                public Void call() throws PublishFailedException {
+                    client.publish(channels, item);
+                    return null;
+                }
+            });
+        }
+        long timeoutNanos = this.publishTimeoutNanos;
+        long start = System.nanoTime();
+        List<PublishResult.Outcome> outcomes = new ArrayList<PublishResult.Outcome>(count);
+        // without a timeout the first target is published to on this
+        // thread, which saves a handoff when there's only one
+        int first = timeoutNanos == 0 && count > 0 ? 1 : 0;
+        List<FutureTask<Void>> futures = new ArrayList<FutureTask<Void>>(count);
+        final long[] elapsed = new long[count];
+        Executor executor = Threads.executor("gripcontrol-publish", this.virtualThreads);
+        for (int i = first; i < count; i++) {
+            final int index = i;
+            final Callable<Void> task = tasks.get(i);
+            FutureTask<Void> future = new FutureTask<Void>(new Callable<Void>() {
+                public Void call() throws Exception {
+                    long taskStart = System.nanoTime();
+                    try {
+                        return task.call();
+                    } finally {
+                        elapsed[index] = System.nanoTime() - taskStart;
+                    }
+                }
+            });
+            futures.add(future);
+            executor.execute(future);
+        }
+        if (first == 1) {
+            PublishFailedException error = null;
+            try {
+                tasks.get(0).call();
+            } catch (PublishFailedException e) {
+                error = e;
+            } catch (Exception e) {
+                error = new PublishFailedException("failed to publish: " + e.getMessage(), e);
+            }
+            outcomes.add(new PublishResult.Outcome(endpoints[0], targetClients[0], error,
+                    System.nanoTime() - start));
+        }
+        long deadline = start + timeoutNanos;
+        for (int i = first; i < count; i++) {
+            FutureTask<Void> future = futures.get(i - first);
+            PublishFailedException error = null;
+            long taken;
+            try {
+                if (timeoutNanos > 0)
+                    future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                else
+                    future.get();
+                taken = elapsed[i];
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                error = cause instanceof PublishFailedException ? (PublishFailedException)cause :
+                        new PublishFailedException("failed to publish: " + cause.getMessage(), cause);
+                taken = elapsed[i];
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                error = new PublishFailedException("failed to publish: timed out");
+                taken = System.nanoTime() - start;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                error = new PublishFailedException("failed to publish: interrupted");
+                taken = System.nanoTime() - start;
+            }
+            outcomes.add(new PublishResult.Outcome(endpoints[i], targetClients[i], error, taken));
+        }
+        return new PublishResult(outcomes);
+    }
+
+    /**
+     * Give up waiting for each endpoint and client during a synchronous
+     * publish after the specified time, counting the publish as failed
+     * with a "timed out" error. The request itself may still complete in
+     * the background. Zero waits without limit, which is the default.
+     */
+    public void setPublishTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0)
+            throw new IllegalArgumentException("timeout must not be negative");
+        this.publishTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Asynchronously publish an item to the specified channels on every
+     * endpoint and client. The item is serialized once for all endpoints.
+     * The optional callback is called once, after every endpoint and client
+     * has completed, with the first error if any failed.
+     */
+    @Override
+    public void publishAsync(List<String> channels, Item item, PublishCallback callback) {
+        List<Delivery> deliveries = deliveries(channels, item);
+        List<PubControlClient> clients = new ArrayList<PubControlClient>(this.clients);
+        PublishCallback handler = null;
+        if (callback != null) {
+            int count = deliveries.size() + clients.size();
+            if (count == 0) {
+                callback.completed(true, null);
+                return;
+            }
+            handler = new CallbackHandler(count, callback);
+        }
+        for (Delivery delivery : deliveries) {
+            delivery.endpoint.publishAsync(delivery.body, delivery.itemCount, handler);
+        }
+        for (PubControlClient client : clients) {
+            client.publishAsync(channels, item, handler);
+        }
+    }
+
+    /**
+     * Asynchronously publish an item to the specified channels on every
+     * endpoint and client. The returned future completes once every
+     * endpoint and client has completed, exceptionally with a
+     * PublishFailedException holding the first error if any failed.
+     * Cancelling the future removes the publish from the queues of the
+     * endpoints that haven't sent it yet.
+     */
+    public CompletableFuture<Void> publishAsync(List<String> channels, Item item) {
+        return publishFuture(channels, item, 0);
+    }
+
+    /**
+     * Asynchronously publish an item, as with publishAsync, failing the
+     * returned future with a TimeoutException if it hasn't completed
+     * within the specified time. A publish that times out is removed from
+     * the queues of the endpoints that haven't sent it yet.
+     */
+    public CompletableFuture<Void> publishAsync(List<String> channels, Item item,
+            long timeout, TimeUnit unit) {
+        if (timeout <= 0)
+            throw new IllegalArgumentException("timeout must be positive");
+        return publishFuture(channels, item, unit.toNanos(timeout));
+    }
+
+    private CompletableFuture<Void> publishFuture(List<String> channels, Item item, long timeoutNanos) {
+        final PublishFuture future = new PublishFuture();
+        final Executor executor = this.completionExecutor;
+        final List<Delivery> deliveries = deliveries(channels, item);
+        List<PubControlClient> clients = new ArrayList<PubControlClient>(this.clients);
+        int count = deliveries.size() + clients.size();
+        if (count == 0) {
+            future.complete(null);
+            return future;
+        }
+        PublishCallback handler = new CallbackHandler(count, new PublishCallback() {
+            public void completed(final boolean result, final String message) {
+                Runnable completion = new Runnable() {
+                    public void run() {
+                        if (result)
+                            future.complete(null);
+                        else
+                            future.completeExceptionally(new PublishFailedException(message));
+                    }
+                };
+                if (executor == null) {
+                    completion.run();
+                    return;
+                }
+                try {
+                    executor.execute(completion);
+                } catch (RejectedExecutionException e) {
+                    completion.run();
+                }
+            }
+        });
+        final List<PublishEndpoint.Request> requests =
+                new ArrayList<PublishEndpoint.Request>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            requests.add(delivery.endpoint.publishAsync(delivery.body, delivery.itemCount, handler));
+        }
+        for (PubControlClient client : clients) {
+            client.publishAsync(channels, item, handler);
+        }
+        // queued requests are removed before the future shows as cancelled
+        // or timed out, so that a caller woken by it knows they won't be sent
+        future.cancelQueued = new Runnable() {
+            public void run() {
+                for (int i = 0; i < requests.size(); i++) {
+                    deliveries.get(i).endpoint.cancel(requests.get(i));
+                }
+            }
+        };
+        final ScheduledFuture<?> timeout = timeoutNanos > 0 ? getTimer().schedule(new Runnable() {
+            public void run() {
+                if (future.isDone())
+                    return;
+                future.cancelQueued.run();
+                future.completeExceptionally(new TimeoutException("publish timed out"));
+            }
+        }, timeoutNanos, TimeUnit.NANOSECONDS) : null;
+        future.whenComplete(new BiConsumer<Void, Throwable>() {
+            public void accept(Void result, Throwable error) {
+                if (timeout != null)
+                    timeout.cancel(false);
+                // a timeout set by the caller, such as with orTimeout
+                if (error instanceof TimeoutException)
+                    future.cancelQueued.run();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * A future that removes its queued requests when it is cancelled.
+     */
+    private static final class PublishFuture extends CompletableFuture<Void> {
+        volatile Runnable cancelQueued;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            Runnable cancelQueued = this.cancelQueued;
+            if (cancelQueued != null && !isDone())
+                cancelQueued.run();
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    // the request body to send to each endpoint: the same body to every
+    // endpoint, or with sharding, a body holding the channels each
+    // endpoint owns
+    private List<Delivery> deliveries(List<String> channels, Item item) {
+        ChannelRouter router = this.router;
+        if (router == null) {
+            List<PublishEndpoint> endpoints = new ArrayList<PublishEndpoint>(this.endpoints);
+            if (endpoints.isEmpty())
+                return Collections.emptyList();
+            byte[] body = PublishItem.render(channels, item);
+            this.metrics.serialized(channels.size(), body.length);
+            List<Delivery> deliveries = new ArrayList<Delivery>(endpoints.size());
+            for (PublishEndpoint endpoint : endpoints) {
+                deliveries.add(new Delivery(endpoint, body, channels.size()));
+            }
+            return deliveries;
+        }
+        Map<PublishEndpoint, List<String>> groups = new LinkedHashMap<PublishEndpoint, List<String>>();
+        for (String channel : channels) {
+            PublishEndpoint endpoint = router.route(channel);
+            if (endpoint == null)
+                continue;
+            List<String> group = groups.get(endpoint);
+            if (group == null) {
+                group = new ArrayList<String>();
+                groups.put(endpoint, group);
+            }
+            group.add(channel);
+        }
+        if (groups.isEmpty())
+            return Collections.emptyList();
+        byte[] head = PublishItem.renderHead(item);
+        List<Delivery> deliveries = new ArrayList<Delivery>(groups.size());
+        PublishMetrics metrics = this.metrics;
+        for (Map.Entry<PublishEndpoint, List<String>> group : groups.entrySet()) {
+            byte[] body = PublishItem.render(group.getValue(), head);
+            metrics.serialized(group.getValue().size(), body.length);
+            deliveries.add(new Delivery(group.getKey(), body, group.getValue().size()));
+        }
+        return deliveries;
+    }
+
+    private static synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "gripcontrol-timeout");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            timer = executor;
+        }
+        return timer;
+    }
+
+    private static PublishEndpoint createEndpoint(String uri, Object iss, Object key) {
+        PublishEndpoint endpoint = new PublishEndpoint(uri);
+        if (iss != null && key != null) {
+            Map<String, Object> claims = new HashMap<String, Object>();
+            claims.put("iss", (String)iss);
+            endpoint.setAuthJwt(claims, key instanceof byte[] ? (byte[])key :
+                    ((String)key).getBytes(StandardCharsets.UTF_8));
+        } else if (key != null) {
+            endpoint.setAuthBearer((String)key);
+        }
+        return endpoint;
     }
 
     /**
@@ -69,7 +703,7 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpResponse(List<String> channels, HttpResponseFormat format,
             String id, String prevId) throws PublishFailedException {
-        super.publish(channels, new Item(getListOfFormats(format), id, prevId));
+        publish(channels, new PublishItem(format, id, prevId));
     }
 
     /**
@@ -78,7 +712,7 @@ public class GripPubControl extends PubControl {
     public void publishHttpResponse(List<String> channels, String body,
             String id, String prevId)
             throws PublishFailedException, UnsupportedEncodingException {
-        super.publish(channels, new Item(getListOfFormats(new HttpResponseFormat(body)), id, prevId));
+        publish(channels, new PublishItem(new HttpResponseFormat(body), id, prevId));
     }
 
     /**
@@ -86,7 +720,7 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpResponse(List<String> channels, byte[] body,
             String id, String prevId) throws PublishFailedException {
-        super.publish(channels, new Item(getListOfFormats(new HttpResponseFormat(body)), id, prevId));
+        publish(channels, new PublishItem(new HttpResponseFormat(body), id, prevId));
     }
 
     /**
@@ -94,7 +728,7 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpResponse(List<String> channels, HttpResponseFormat format)
             throws PublishFailedException {
-        super.publish(channels, new Item(getListOfFormats(format), null, null));
+        publish(channels, new PublishItem(format, null, null));
     }
 
     /**
@@ -102,14 +736,14 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpResponse(List<String> channels, String body)
             throws PublishFailedException, UnsupportedEncodingException {
-        super.publish(channels, new Item(getListOfFormats(new HttpResponseFormat(body)), null, null));
+        publish(channels, new PublishItem(new HttpResponseFormat(body), null, null));
     }
 
     /**
      * Synchronously publish an HTTP response format message.
      */
     public void publishHttpResponse(List<String> channels, byte[] body) throws PublishFailedException {
-        super.publish(channels, new Item(getListOfFormats(new HttpResponseFormat(body)), null, null));
+        publish(channels, new PublishItem(new HttpResponseFormat(body), null, null));
     }
 
     /**
@@ -117,7 +751,7 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpResponseAsync(List<String> channels, HttpResponseFormat format,
             String id, String prevId, PublishCallback callback) {
-        super.publishAsync(channels, new Item(getListOfFormats(format), id, prevId), callback);
+        publishAsync(channels, new PublishItem(format, id, prevId), callback);
     }
 
     /**
@@ -126,8 +760,8 @@ public class GripPubControl extends PubControl {
     public void publishHttpResponseAsync(List<String> channels, String body,
             String id, String prevId, PublishCallback callback)
             throws UnsupportedEncodingException {
-        super.publishAsync(channels,
-                new Item(getListOfFormats(new HttpResponseFormat(body)), id, prevId), callback);
+        publishAsync(channels,
+                new PublishItem(new HttpResponseFormat(body), id, prevId), callback);
     }
 
     /**
@@ -135,8 +769,8 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpResponseAsync(List<String> channels, byte[] body,
             String id, String prevId, PublishCallback callback) {
-        super.publishAsync(channels,
-                new Item(getListOfFormats(new HttpResponseFormat(body)), id, prevId), callback);
+        publishAsync(channels,
+                new PublishItem(new HttpResponseFormat(body), id, prevId), callback);
     }
 
     /**
@@ -144,8 +778,8 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpResponseAsync(List<String> channels, HttpResponseFormat format,
             PublishCallback callback) {
-        super.publishAsync(channels,
-                new Item(getListOfFormats(format), null, null), callback);
+        publishAsync(channels,
+                new PublishItem(format, null, null), callback);
     }
 
     /**
@@ -153,8 +787,8 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpResponseAsync(List<String> channels, String body, PublishCallback callback)
             throws UnsupportedEncodingException {
-        super.publishAsync(channels,
-                new Item(getListOfFormats(new HttpResponseFormat(body)), null, null), callback);
+        publishAsync(channels,
+                new PublishItem(new HttpResponseFormat(body), null, null), callback);
     }
 
     /**
@@ -162,8 +796,61 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpResponseAsync(List<String> channels, byte[] body,
             PublishCallback callback) {
-        super.publishAsync(channels,
-                new Item(getListOfFormats(new HttpResponseFormat(body)), null, null), callback);
+        publishAsync(channels,
+                new PublishItem(new HttpResponseFormat(body), null, null), callback);
+    }
+
+    /**
+     * Asynchronously publish an HTTP response format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpResponseAsync(List<String> channels, HttpResponseFormat format,
+            String id, String prevId) {
+        return publishAsync(channels, new PublishItem(format, id, prevId));
+    }
+
+    /**
+     * Asynchronously publish an HTTP response format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpResponseAsync(List<String> channels, HttpResponseFormat format) {
+        return publishAsync(channels, new PublishItem(format, null, null));
+    }
+
+    /**
+     * Asynchronously publish an HTTP response format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpResponseAsync(List<String> channels, String body,
+            String id, String prevId)
+            throws UnsupportedEncodingException {
+        return publishAsync(channels, new PublishItem(new HttpResponseFormat(body), id, prevId));
+    }
+
+    /**
+     * Asynchronously publish an HTTP response format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpResponseAsync(List<String> channels, String body)
+            throws UnsupportedEncodingException {
+        return publishAsync(channels, new PublishItem(new HttpResponseFormat(body), null, null));
+    }
+
+    /**
+     * Asynchronously publish an HTTP response format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpResponseAsync(List<String> channels, byte[] body,
+            String id, String prevId) {
+        return publishAsync(channels, new PublishItem(new HttpResponseFormat(body), id, prevId));
+    }
+
+    /**
+     * Asynchronously publish an HTTP response format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpResponseAsync(List<String> channels, byte[] body) {
+        return publishAsync(channels, new PublishItem(new HttpResponseFormat(body), null, null));
     }
 
     /**
@@ -171,7 +858,7 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpStream(List<String> channels, HttpStreamFormat format,
             String id, String prevId) throws PublishFailedException {
-        super.publish(channels, new Item(getListOfFormats(format), id, prevId));
+        publish(channels, new PublishItem(format, id, prevId));
     }
 
     /**
@@ -180,7 +867,7 @@ public class GripPubControl extends PubControl {
     public void publishHttpStream(List<String> channels, String content,
             String id, String prevId)
             throws PublishFailedException, UnsupportedEncodingException {
-        super.publish(channels, new Item(getListOfFormats(new HttpStreamFormat(content)), id, prevId));
+        publish(channels, new PublishItem(new HttpStreamFormat(content), id, prevId));
     }
 
     /**
@@ -188,7 +875,7 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpStream(List<String> channels, byte[] content,
             String id, String prevId) throws PublishFailedException {
-        super.publish(channels, new Item(getListOfFormats(new HttpStreamFormat(content)), id, prevId));
+        publish(channels, new PublishItem(new HttpStreamFormat(content), id, prevId));
     }
 
     /**
@@ -196,7 +883,7 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpStream(List<String> channels, HttpStreamFormat format)
             throws PublishFailedException {
-        super.publish(channels, new Item(getListOfFormats(format), null, null));
+        publish(channels, new PublishItem(format, null, null));
     }
 
     /**
@@ -204,14 +891,14 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpStream(List<String> channels, String content)
             throws PublishFailedException, UnsupportedEncodingException {
-        super.publish(channels, new Item(getListOfFormats(new HttpStreamFormat(content)), null, null));
+        publish(channels, new PublishItem(new HttpStreamFormat(content), null, null));
     }
 
     /**
      * Synchronously publish an HTTP stream format message.
      */
     public void publishHttpStream(List<String> channels, byte[] content) throws PublishFailedException {
-        super.publish(channels, new Item(getListOfFormats(new HttpStreamFormat(content)), null, null));
+        publish(channels, new PublishItem(new HttpStreamFormat(content), null, null));
     }
 
     /**
@@ -219,7 +906,7 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpStreamAsync(List<String> channels, HttpStreamFormat format,
             String id, String prevId, PublishCallback callback) {
-        super.publishAsync(channels, new Item(getListOfFormats(format), id, prevId), callback);
+        publishAsync(channels, new PublishItem(format, id, prevId), callback);
     }
 
     /**
@@ -228,8 +915,8 @@ public class GripPubControl extends PubControl {
     public void publishHttpStreamAsync(List<String> channels, String content,
             String id, String prevId, PublishCallback callback)
             throws UnsupportedEncodingException {
-        super.publishAsync(channels,
-                new Item(getListOfFormats(new HttpStreamFormat(content)), id, prevId), callback);
+        publishAsync(channels,
+                new PublishItem(new HttpStreamFormat(content), id, prevId), callback);
     }
 
     /**
@@ -237,8 +924,8 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpStreamAsync(List<String> channels, byte[] content,
             String id, String prevId, PublishCallback callback) {
-        super.publishAsync(channels,
-                new Item(getListOfFormats(new HttpStreamFormat(content)), id, prevId), callback);
+        publishAsync(channels,
+                new PublishItem(new HttpStreamFormat(content), id, prevId), callback);
     }
 
     /**
@@ -246,7 +933,7 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpStreamAsync(List<String> channels, HttpStreamFormat format,
             PublishCallback callback) {
-        super.publishAsync(channels, new Item(getListOfFormats(format), null, null), callback);
+        publishAsync(channels, new PublishItem(format, null, null), callback);
     }
 
     /**
@@ -254,8 +941,8 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpStreamAsync(List<String> channels, String content, PublishCallback callback)
             throws UnsupportedEncodingException {
-        super.publishAsync(channels,
-                new Item(getListOfFormats(new HttpStreamFormat(content)), null, null), callback);
+        publishAsync(channels,
+                new PublishItem(new HttpStreamFormat(content), null, null), callback);
     }
 
     /**
@@ -263,16 +950,106 @@ public class GripPubControl extends PubControl {
      */
     public void publishHttpStreamAsync(List<String> channels, byte[] content,
             PublishCallback callback) {
-        super.publishAsync(channels,
-                new Item(getListOfFormats(new HttpStreamFormat(content)), null, null), callback);
+        publishAsync(channels,
+                new PublishItem(new HttpStreamFormat(content), null, null), callback);
+    }
+
+    /**
+     * Asynchronously publish an HTTP stream format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpStreamAsync(List<String> channels, HttpStreamFormat format,
+            String id, String prevId) {
+        return publishAsync(channels, new PublishItem(format, id, prevId));
+    }
+
+    /**
+     * Asynchronously publish an HTTP stream format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpStreamAsync(List<String> channels, HttpStreamFormat format) {
+        return publishAsync(channels, new PublishItem(format, null, null));
     }
 
     /**
-     * Get a list of formats containing the specified format.
+     * Asynchronously publish an HTTP stream format message. The returned
+     * future completes once the message has been published.
      */
-    private List<Format> getListOfFormats(Format format) {
-        List<Format> formats = new ArrayList<Format>();
-        formats.add(format);
-        return formats;
+    public CompletableFuture<Void> publishHttpStreamAsync(List<String> channels, String content,
+            String id, String prevId)
+            throws UnsupportedEncodingException {
+        return publishAsync(channels, new PublishItem(new HttpStreamFormat(content), id, prevId));
+    }
+
+    /**
+     * Asynchronously publish an HTTP stream format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpStreamAsync(List<String> channels, String content)
+            throws UnsupportedEncodingException {
+        return publishAsync(channels, new PublishItem(new HttpStreamFormat(content), null, null));
+    }
+
+    /**
+     * Asynchronously publish an HTTP stream format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpStreamAsync(List<String> channels, byte[] content,
+            String id, String prevId) {
+        return publishAsync(channels, new PublishItem(new HttpStreamFormat(content), id, prevId));
+    }
+
+    /**
+     * Asynchronously publish an HTTP stream format message. The returned
+     * future completes once the message has been published.
+     */
+    public CompletableFuture<Void> publishHttpStreamAsync(List<String> channels, byte[] content) {
+        return publishAsync(channels, new PublishItem(new HttpStreamFormat(content), null, null));
+    }
+
+    // a request body for one endpoint
+    private static final class Delivery {
+        final PublishEndpoint endpoint;
+        final byte[] body;
+        final int itemCount;
+
+        Delivery(PublishEndpoint endpoint, byte[] body, int itemCount) {
+            this.endpoint = endpoint;
+            this.body = body;
+            this.itemCount = itemCount;
+        }
+    }
+
+    // calls the callback once all publishes have completed
+    private static class CallbackHandler implements PublishCallback {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final PublishCallback callback;
+        private int remaining;
+        private boolean success = true;
+        private String firstErrorMessage;
+
+        CallbackHandler(int count, PublishCallback callback) {
+            this.remaining = count;
+            this.callback = callback;
+        }
+
+        public void completed(boolean result, String message) {
+            boolean success;
+            String firstErrorMessage;
+            this.lock.lock();
+            try {
+                if (!result && this.success) {
+                    this.success = false;
+                    this.firstErrorMessage = message;
+                }
+                if (--this.remaining > 0)
+                    return;
+                success = this.success;
+                firstErrorMessage = this.firstErrorMessage;
+            } finally {
+                this.lock.unlock();
+            }
+            this.callback.completed(success, firstErrorMessage);
+        }
     }
 }
@@ -0,0 +1,174 @@
+//    GripSigCache.java
+//    ~~~~~~~~~
+//    This module implements the GripSigCache class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of successfully verified GRIP-SIG tokens.
+ * GRIP proxies reuse the same token for many requests until it expires, so
+ * remembering verified tokens turns most signature checks into a hash
+ * lookup. Each token is remembered until its own expiration time; tokens
+ * without an expiration are never cached, and neither are failures. When
+ * the cache is full the oldest entries are evicted first, which with a
+ * proxy issuing tokens of a fixed lifetime is also the order in which they
+ * expire. A cache belongs to the validator of a single key and must not be
+ * shared between validators with different keys. Instances are thread-safe.
+ */
+public class GripSigCache {
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry> entries;
+    // the entries in the order they were added; an entry whose token was
+    // removed or added again is stale and skipped
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<Entry>();
+    // the length of order, since its size method counts every node; it
+    // can drift slightly under races and is recounted on each purge
+    private final AtomicInteger orderLength = new AtomicInteger();
+    private final AtomicBoolean purging = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final class Entry {
+        final String token;
+        final long expiresAtMillis;
+
+        Entry(String token, long expiresAtMillis) {
+            this.token = token;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /**
+     * Initialize with the maximum number of tokens to remember.
+     */
+    public GripSigCache(int maxEntries) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("maxEntries must be positive");
+        this.maxEntries = maxEntries;
+        this.entries = new ConcurrentHashMap<String, Entry>(Math.min(maxEntries, 1024) * 4 / 3 + 1);
+    }
+
+    /**
+     * Whether the specified token was verified and has not expired at the
+     * specified time, given in milliseconds since the epoch. Expired tokens
+     * are removed. Updates the hit and miss counts.
+     */
+    public boolean contains(String token, long nowMillis) {
+        Entry entry = this.entries.get(token);
+        if (entry != null) {
+            if (nowMillis <= entry.expiresAtMillis) {
+                this.hits.increment();
+                return true;
+            }
+            if (this.entries.remove(token, entry))
+                this.evictions.increment();
+        }
+        this.misses.increment();
+        return false;
+    }
+
+    /**
+     * Remember that the specified token was verified and is valid until the
+     * specified time, given in milliseconds since the epoch.
+     */
+    public void put(String token, long expiresAtMillis) {
+        Entry entry = new Entry(token, expiresAtMillis);
+        if (this.entries.putIfAbsent(token, entry) != null)
+            return;
+        this.order.add(entry);
+        this.orderLength.incrementAndGet();
+        while (this.entries.size() > this.maxEntries) {
+            Entry oldest = this.order.poll();
+            if (oldest == null)
+                break;
+            this.orderLength.decrementAndGet();
+            // only the entry this node was added for, not a later one
+            if (this.entries.remove(oldest.token, oldest))
+                this.evictions.increment();
+        }
+        // keep the queue from growing with entries already removed on expiry
+        if (this.orderLength.get() > this.maxEntries * 2)
+            purgeOrder();
+    }
+
+    /**
+     * Remove all tokens.
+     */
+    public void clear() {
+        this.entries.clear();
+        this.order.clear();
+        this.orderLength.set(0);
+    }
+
+    /**
+     * The number of tokens currently remembered.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * The maximum number of tokens remembered.
+     */
+    public int getMaxEntries() {
+        return this.maxEntries;
+    }
+
+    /**
+     * The number of lookups that found a valid token.
+     */
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * The number of lookups that did not find a valid token.
+     */
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * The number of tokens removed because they expired or the cache was full.
+     */
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * The number of entries in the eviction queue, including entries
+     * already removed on expiry that haven't been purged yet.
+     */
+    int getOrderLength() {
+        return this.orderLength.get();
+    }
+
+    private void purgeOrder() {
+        if (!this.purging.compareAndSet(false, true))
+            return;
+        try {
+            int kept = 0;
+            for (Iterator<Entry> it = this.order.iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (this.entries.get(entry.token) == entry)
+                    kept++;
+                else
+                    it.remove();
+            }
+            this.orderLength.set(kept);
+        } finally {
+            this.purging.set(false);
+        }
+    }
+}
@@ -0,0 +1,474 @@
+//    GripSigValidator.java
+//    ~~~~~~~~~
+//    This module implements the GripSigValidator class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Validates the GRIP-SIG header coming from GRIP proxies such as Pushpin or
+ * Fastly Fanout against a single key.
+ * This is a reusable alternative to GripControl.validateSig meant to be
+ * constructed once per key. The key is decoded once and each thread keeps
+ * its own initialized Mac, so validating a token only costs the HMAC, the
+ * base64 decoding of the token parts and a scan of the header and claims
+ * for the "alg", "exp" and "nbf" members. The HS256, HS384 and HS512
+ * algorithms are supported. Validation never throws: the outcome is
+ * returned as a Result. Optionally, successfully verified tokens can be
+ * remembered in a GripSigCache until they expire. Instances are thread-safe.
+ */
+public class GripSigValidator {
+    /**
+     * The outcome of validating a token.
+     */
+    public enum Result {
+        VALID,
+        MALFORMED,
+        UNSUPPORTED_ALGORITHM,
+        INVALID_SIGNATURE,
+        EXPIRED,
+        NOT_YET_VALID;
+
+        /**
+         * Whether the token is valid.
+         */
+        public boolean isValid() {
+            return this == VALID;
+        }
+    }
+
+    private static final String[] ALGORITHMS = {"HS256", "HS384", "HS512"};
+    private static final String[] JCA_NAMES = {"HmacSHA256", "HmacSHA384", "HmacSHA512"};
+
+    private final byte[] key;
+    private final GripSigCache cache;
+    private final ThreadLocal<Mac[]> macs = new ThreadLocal<Mac[]>() {
+        @Override
+        protected Mac[] initialValue() {
+            return new Mac[ALGORITHMS.length];
+        }
+    };
+
+    /**
+     * Initialize with a base64 encoded key, as accepted by
+     * GripControl.validateSig.
+     */
+    public GripSigValidator(String key) {
+        this(Utilities.decodeBase64(key), 0);
+    }
+
+    /**
+     * Initialize with a base64 encoded key and the maximum number of
+     * verified tokens to cache. A size of 0 disables the cache.
+     */
+    public GripSigValidator(String key, int cacheSize) {
+        this(Utilities.decodeBase64(key), cacheSize);
+    }
+
+    /**
+     * Initialize with a raw key.
+     */
+    public GripSigValidator(byte[] key) {
+        this(key, 0);
+    }
+
+    /**
+     * Initialize with a raw key and the maximum number of verified tokens
+     * to cache. A size of 0 disables the cache.
+     */
+    public GripSigValidator(byte[] key, int cacheSize) {
+        if (key == null || key.length == 0)
+            throw new IllegalArgumentException("key must be set");
+        if (cacheSize < 0)
+            throw new IllegalArgumentException("cacheSize must not be negative");
+        this.key = key.clone();
+        this.cache = cacheSize > 0 ? new GripSigCache(cacheSize) : null;
+    }
+
+    /**
+     * The cache of verified tokens, or null if caching is disabled.
+     */
+    public GripSigCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Whether the specified token is valid at the current time.
+     */
+    public boolean isValid(String token) {
+        return validate(token).isValid();
+    }
+
+    /**
+     * Validate the specified token at the current time.
+     */
+    public Result validate(String token) {
+        return validate(token, System.currentTimeMillis());
+    }
+
+    /**
+     * Validate the specified token at the specified time, given in
+     * milliseconds since the epoch.
+     */
+    public Result validate(String token, long nowMillis) {
+        if (this.cache != null && token != null && this.cache.contains(token, nowMillis))
+            return Result.VALID;
+        Jwt jwt = Jwt.parse(token);
+        if (jwt == null)
+            return Result.MALFORMED;
+        Result result = validate(jwt, nowMillis);
+        if (this.cache != null && result == Result.VALID && jwt.expiresAt != Long.MIN_VALUE)
+            this.cache.put(token, jwt.expiresAt);
+        return result;
+    }
+
+    /**
+     * Validate an already split token. Used by validators that inspect the
+     * token before choosing a key.
+     */
+    Result validate(Jwt jwt, long nowMillis) {
+        int algorithm = algorithmIndex(jwt.algorithm);
+        if (algorithm < 0)
+            return Result.UNSUPPORTED_ALGORITHM;
+        if (!verifySignature(jwt, algorithm))
+            return Result.INVALID_SIGNATURE;
+        return checkTimes(jwt, nowMillis);
+    }
+
+    /**
+     * Check the "exp" and "nbf" claims of a token the same way as jjwt,
+     * which is used by GripControl.validateSig.
+     */
+    static Result checkTimes(Jwt jwt, long nowMillis) {
+        if (jwt.expiresAt != Long.MIN_VALUE && nowMillis > jwt.expiresAt)
+            return Result.EXPIRED;
+        if (jwt.notBefore != Long.MIN_VALUE && nowMillis < jwt.notBefore)
+            return Result.NOT_YET_VALID;
+        return Result.VALID;
+    }
+
+    private boolean verifySignature(Jwt jwt, int algorithm) {
+        Mac[] threadMacs = this.macs.get();
+        Mac mac = threadMacs[algorithm];
+        try {
+            if (mac == null) {
+                mac = Mac.getInstance(JCA_NAMES[algorithm]);
+                mac.init(new SecretKeySpec(this.key, JCA_NAMES[algorithm]));
+                threadMacs[algorithm] = mac;
+            }
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+        mac.update(jwt.signingInput, 0, jwt.signingInputLength);
+        return MessageDigest.isEqual(mac.doFinal(), jwt.signature);
+    }
+
+    private static int algorithmIndex(String algorithm) {
+        for (int i = 0; i < ALGORITHMS.length; i++) {
+            if (ALGORITHMS[i].equals(algorithm))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * A token split into its parts, with the members needed for validation
+     * extracted from the header and the claims. Times are in milliseconds
+     * and Long.MIN_VALUE when absent.
+     */
+    static final class Jwt {
+        final byte[] signingInput;
+        final int signingInputLength;
+        final byte[] signature;
+        final String algorithm;
+        final String keyId;
+        final String issuer;
+        final long expiresAt;
+        final long notBefore;
+
+        private Jwt(byte[] signingInput, int signingInputLength, byte[] signature, String algorithm,
+                String keyId, String issuer, long expiresAt, long notBefore) {
+            this.signingInput = signingInput;
+            this.signingInputLength = signingInputLength;
+            this.signature = signature;
+            this.algorithm = algorithm;
+            this.keyId = keyId;
+            this.issuer = issuer;
+            this.expiresAt = expiresAt;
+            this.notBefore = notBefore;
+        }
+
+        /**
+         * Split and decode the specified token. Returns null if the token
+         * is malformed.
+         */
+        static Jwt parse(String token) {
+            if (token == null)
+                return null;
+            int first = token.indexOf('.');
+            int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+            if (second < 0 || token.indexOf('.', second + 1) >= 0 || second == token.length() - 1)
+                return null;
+            byte[] bytes = token.getBytes(StandardCharsets.ISO_8859_1);
+            try {
+                byte[] header = decode(bytes, 0, first);
+                byte[] claims = decode(bytes, first + 1, second - first - 1);
+                byte[] signature = decode(bytes, second + 1, bytes.length - second - 1);
+                JsonScanner headerScanner = new JsonScanner(header);
+                JsonScanner claimsScanner = new JsonScanner(claims);
+                if (!headerScanner.isObject() || !claimsScanner.isObject())
+                    return null;
+                String algorithm = headerScanner.stringMember("alg");
+                String keyId = headerScanner.stringMember("kid");
+                String issuer = claimsScanner.stringMember("iss");
+                long expiresAt = claimsScanner.secondsMemberAsMillis("exp");
+                long notBefore = claimsScanner.secondsMemberAsMillis("nbf");
+                if (headerScanner.failed || claimsScanner.failed)
+                    return null;
+                return new Jwt(bytes, second, signature, algorithm, keyId, issuer, expiresAt, notBefore);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Decode the specified range of a base64url encoded array.
+     */
+    private static byte[] decode(byte[] bytes, int offset, int length) {
+        ByteBuffer decoded = Base64.getUrlDecoder().decode(ByteBuffer.wrap(bytes, offset, length));
+        if (decoded.hasArray() && decoded.arrayOffset() == 0 && decoded.position() == 0 &&
+                decoded.remaining() == decoded.array().length)
+            return decoded.array();
+        byte[] out = new byte[decoded.remaining()];
+        decoded.get(out);
+        return out;
+    }
+
+    /**
+     * A minimal scanner for the top-level members of a JSON object.
+     * It only understands as much JSON as is needed to skip over values and
+     * to read top-level string and number members; anything it cannot make
+     * sense of marks the scanner as failed.
+     */
+    static final class JsonScanner {
+        private final byte[] json;
+        boolean failed;
+
+        JsonScanner(byte[] json) {
+            this.json = json;
+        }
+
+        boolean isObject() {
+            int i = skipWhitespace(0);
+            return i < this.json.length && this.json[i] == '{';
+        }
+
+        /**
+         * The value of the specified top-level string member, or null if it
+         * is absent or not a string.
+         */
+        String stringMember(String name) {
+            int at = findMember(name);
+            if (at < 0 || this.json[at] != '"')
+                return null;
+            int end = skipString(at);
+            if (end < 0) {
+                this.failed = true;
+                return null;
+            }
+            String value = new String(this.json, at + 1, end - at - 2, StandardCharsets.UTF_8);
+            if (value.indexOf('\\') >= 0)
+                value = unescape(value);
+            return value;
+        }
+
+        /**
+         * The value of the specified top-level numeric member interpreted as
+         * seconds since the epoch, in milliseconds, or Long.MIN_VALUE if it
+         * is absent. A member that is present but not a number fails the scan.
+         */
+        long secondsMemberAsMillis(String name) {
+            int at = findMember(name);
+            if (at < 0)
+                return Long.MIN_VALUE;
+            int end = at;
+            while (end < this.json.length && isNumberChar(this.json[end]))
+                end++;
+            try {
+                String number = new String(this.json, at, end - at, StandardCharsets.US_ASCII);
+                if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                    try {
+                        return clampMillis(Math.multiplyExact(Long.parseLong(number), 1000L));
+                    } catch (ArithmeticException e) {
+                        return number.startsWith("-") ? Long.MIN_VALUE + 1 : Long.MAX_VALUE;
+                    } catch (NumberFormatException e) {
+                        // too long for a long; the double saturates instead
+                    }
+                }
+                // the cast saturates at the long range
+                return clampMillis((long)(Double.parseDouble(number) * 1000));
+            } catch (NumberFormatException e) {
+                this.failed = true;
+                return Long.MIN_VALUE;
+            }
+        }
+
+        // Long.MIN_VALUE means absent, so times that far in the past are
+        // moved one millisecond later
+        private static long clampMillis(long millis) {
+            return millis == Long.MIN_VALUE ? Long.MIN_VALUE + 1 : millis;
+        }
+
+        /**
+         * Find the start of the value of the specified top-level member, or
+         * return -1 if it is absent.
+         */
+        private int findMember(String name) {
+            int i = skipWhitespace(0);
+            if (i >= this.json.length || this.json[i] != '{') {
+                this.failed = true;
+                return -1;
+            }
+            i = skipWhitespace(i + 1);
+            if (i < this.json.length && this.json[i] == '}')
+                return -1;
+            while (i < this.json.length) {
+                if (this.json[i] != '"')
+                    break;
+                int keyEnd = skipString(i);
+                if (keyEnd < 0)
+                    break;
+                boolean match = keyEnd - i - 2 == name.length() && regionMatches(i + 1, name);
+                i = skipWhitespace(keyEnd);
+                if (i >= this.json.length || this.json[i] != ':')
+                    break;
+                i = skipWhitespace(i + 1);
+                if (match)
+                    return i < this.json.length ? i : -1;
+                i = skipValue(i);
+                if (i < 0)
+                    break;
+                i = skipWhitespace(i);
+                if (i < this.json.length && this.json[i] == ',') {
+                    i = skipWhitespace(i + 1);
+                } else if (i < this.json.length && this.json[i] == '}') {
+                    return -1;
+                } else {
+                    break;
+                }
+            }
+            this.failed = true;
+            return -1;
+        }
+
+        private boolean regionMatches(int offset, String name) {
+            for (int i = 0; i < name.length(); i++) {
+                if (this.json[offset + i] != name.charAt(i))
+                    return false;
+            }
+            return true;
+        }
+
+        private int skipWhitespace(int i) {
+            while (i < this.json.length && (this.json[i] == ' ' || this.json[i] == '\t' ||
+                    this.json[i] == '\n' || this.json[i] == '\r'))
+                i++;
+            return i;
+        }
+
+        /**
+         * Return the index after the string starting at the specified
+         * quote, or -1 if it is unterminated.
+         */
+        private int skipString(int i) {
+            for (i = i + 1; i < this.json.length; i++) {
+                if (this.json[i] == '\\') {
+                    i++;
+                } else if (this.json[i] == '"') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Return the index after the value starting at the specified index,
+         * or -1 if it cannot be skipped.
+         */
+        private int skipValue(int i) {
+            if (i >= this.json.length)
+                return -1;
+            byte b = this.json[i];
+            if (b == '"')
+                return skipString(i);
+            if (b == '{' || b == '[') {
+                int depth = 0;
+                while (i < this.json.length) {
+                    b = this.json[i];
+                    if (b == '"') {
+                        i = skipString(i);
+                        if (i < 0)
+                            return -1;
+                        continue;
+                    }
+                    if (b == '{' || b == '[') {
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        depth--;
+                        if (depth == 0)
+                            return i + 1;
+                    }
+                    i++;
+                }
+                return -1;
+            }
+            int start = i;
+            while (i < this.json.length && (isNumberChar(this.json[i]) ||
+                    (this.json[i] >= 'a' && this.json[i] <= 'z')))
+                i++;
+            return i > start ? i : -1;
+        }
+
+        private static boolean isNumberChar(byte b) {
+            return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+        }
+
+        private static String unescape(String value) {
+            StringBuilder out = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c != '\\' || i + 1 >= value.length()) {
+                    out.append(c);
+                    continue;
+                }
+                c = value.charAt(++i);
+                switch (c) {
+                    case 'b': out.append('\b'); break;
+                    case 'f': out.append('\f'); break;
+                    case 'n': out.append('\n'); break;
+                    case 'r': out.append('\r'); break;
+                    case 't': out.append('\t'); break;
+                    case 'u':
+                        if (i + 4 < value.length()) {
+                            out.append((char)Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                            i += 4;
+                        }
+                        break;
+                    default: out.append(c);
+                }
+            }
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+//    HoldTemplate.java
+//    ~~~~~~~~~
+//    This module implements the HoldTemplate class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A precompiled set of GRIP hold instructions.
+ * The mode, channels, timeout and response are serialized once when the
+ * template is compiled, after which rendering only substitutes the
+ * prev-id of each channel. Rendering the template with its compiled
+ * prev-ids returns the cached instructions without any work. Templates are
+ * immutable and can be shared between threads.
+ */
+public class HoldTemplate {
+    private final String[] channelHeads;
+    private final String[] prevIds;
+    private final String prefix;
+    private final String suffix;
+    private final String rendered;
+    private final byte[] renderedBytes;
+
+    private HoldTemplate(String mode, List<Channel> channels, Response response, int timeout) {
+        StringBuilder prefix = new StringBuilder("{\"hold\":{\"mode\":");
+        GripJsonWriter.quote(prefix, mode);
+        this.prefix = prefix.append(",\"channels\":[").toString();
+        this.channelHeads = new String[channels.size()];
+        this.prevIds = new String[channels.size()];
+        for (int i = 0; i < channels.size(); i++) {
+            Channel channel = channels.get(i);
+            StringBuilder head = new StringBuilder(i > 0 ? ",{\"name\":" : "{\"name\":");
+            GripJsonWriter.quote(head, channel.name);
+            this.channelHeads[i] = head.toString();
+            this.prevIds[i] = channel.prevId;
+        }
+        StringBuilder suffix = new StringBuilder("]");
+        if (timeout > 0)
+            suffix.append(",\"timeout\":").append(timeout);
+        suffix.append('}');
+        if (response != null) {
+            suffix.append(",\"response\":");
+            GripControl.writeHoldResponse(new GripJsonWriter(suffix), response);
+        }
+        suffix.append('}');
+        this.suffix = suffix.toString();
+        this.rendered = render(this.prevIds);
+        this.renderedBytes = this.rendered.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compile GRIP hold instructions for the specified parameters including a timeout.
+     * To disable the timeout pass 0. The response is optional.
+     */
+    public static HoldTemplate compile(String mode, List<Channel> channels, Response response, int timeout) {
+        return new HoldTemplate(mode, channels, response, timeout);
+    }
+
+    /**
+     * Compile GRIP hold instructions for HTTP long-polling.
+     */
+    public static HoldTemplate compileResponse(List<Channel> channels, Response response, int timeout) {
+        return compile("response", channels, response, timeout);
+    }
+
+    /**
+     * Compile GRIP hold instructions for HTTP streaming.
+     */
+    public static HoldTemplate compileStream(List<Channel> channels, Response response) {
+        return compile("stream", channels, response, 0);
+    }
+
+    /**
+     * The number of channels in the template.
+     */
+    public int getChannelCount() {
+        return this.channelHeads.length;
+    }
+
+    /**
+     * Render the hold instructions with the prev-ids of the channels the
+     * template was compiled with.
+     */
+    public String render() {
+        return this.rendered;
+    }
+
+    /**
+     * Render the hold instructions with the specified prev-ids, given in the
+     * order of the channels the template was compiled with. A null prev-id,
+     * or a missing trailing one, keeps the prev-id the channel was compiled
+     * with.
+     */
+    public String render(String... prevIds) {
+        if (prevIds.length > this.channelHeads.length)
+            throw new IllegalArgumentException("more prev-ids than channels");
+        StringBuilder out = new StringBuilder(this.prefix.length() + this.suffix.length() +
+                this.channelHeads.length * 48);
+        out.append(this.prefix);
+        for (int i = 0; i < this.channelHeads.length; i++) {
+            out.append(this.channelHeads[i]);
+            String prevId = i < prevIds.length && prevIds[i] != null ? prevIds[i] : this.prevIds[i];
+            if (prevId != null) {
+                out.append(",\"prev-id\":");
+                GripJsonWriter.quote(out, prevId);
+            }
+            out.append('}');
+        }
+        out.append(this.suffix);
+        return out.toString();
+    }
+
+    /**
+     * Render the hold instructions as UTF-8 with the prev-ids of the
+     * channels the template was compiled with. The returned array is a copy
+     * of the compiled instructions and can be modified by the caller.
+     */
+    public byte[] renderBytes() {
+        return this.renderedBytes.clone();
+    }
+
+    /**
+     * Render the hold instructions as UTF-8 with the specified prev-ids.
+     * See render(String...) for how the prev-ids are applied.
+     */
+    public byte[] renderBytes(String... prevIds) {
+        return render(prevIds).getBytes(StandardCharsets.UTF_8);
+    }
+}
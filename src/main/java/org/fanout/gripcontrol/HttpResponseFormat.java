@@ -7,20 +7,20 @@
 
 package org.fanout.gripcontrol;
 
-import javax.xml.bind.DatatypeConverter;
 import java.io.UnsupportedEncodingException;
-import org.fanout.pubcontrol.Format;
 import java.util.*;
 
 /**
  * Used to publish messages to HTTP response clients connected to a GRIP proxy.
  */
-public class HttpResponseFormat implements Format {
+public class HttpResponseFormat implements GripFormat {
     public byte[] body;
     public Map<String, String>  headers;
     public String code;
     public String reason;
 
+    private volatile ExportCache exportCache;
+
     /**
      * Initialize with the body.
      */
@@ -66,25 +66,68 @@ public class HttpResponseFormat implements Format {
     /**
      * Export the message into the required format.
      * Include only the fields that are set. The body is exported as base64
-     * if the byte array is binary.
+     * if the byte array is binary. The parts of the export are computed once
+     * and reused until the fields change, and a new map that can be
+     * modified is returned each time.
      */
     public Object export() {
-        Map<String, Object> export = new HashMap<String, Object>();
-        if (this.code != null)
-            export.put("code", this.code);
-        if (this.reason != null)
-            export.put("reason", this.reason);
-        if (this.headers != null)
-            export.put("headers", this.headers);
-        if (this.body != null) {
-            if (Utilities.isUtf8(this.body)) {
-                try {
-                    export.put("body", new String(this.body, "utf-8"));
-                } catch (UnsupportedEncodingException e) { }
-            } else {
-                export.put("body-bin", DatatypeConverter.printBase64Binary(this.body));
+        return exported().export();
+    }
+
+    /**
+     * Write the exported message directly as JSON.
+     * The JSON is rendered once and reused until the fields change.
+     */
+    public void exportTo(GripJsonWriter writer) {
+        writer.rawValue(exported().json());
+    }
+
+    private ExportCache exported() {
+        final String code = this.code;
+        final String reason = this.reason;
+        Map<String, String> currentHeaders = this.headers;
+        byte[] currentBody = this.body;
+        ExportCache cache = this.exportCache;
+        if (cache != null && cache.matches(code, reason, currentHeaders, currentBody))
+            return cache;
+        final Map<String, String> headers = currentHeaders != null ?
+                new LinkedHashMap<String, String>(currentHeaders) : null;
+        final byte[] body = currentBody != null ? currentBody.clone() : null;
+        final String text = body != null ? Utilities.utf8BytesToString(body) : null;
+        cache = new ExportCache(code, reason, headers, body) {
+            @Override
+            Map<String, Object> buildExport() {
+                Map<String, Object> export = new LinkedHashMap<String, Object>();
+                if (code != null)
+                    export.put("code", code);
+                if (reason != null)
+                    export.put("reason", reason);
+                if (headers != null)
+                    export.put("headers", new LinkedHashMap<String, String>(headers));
+                if (text != null)
+                    export.put("body", text);
+                else if (body != null)
+                    export.put("body-bin", base64(body));
+                return export;
+            }
+
+            @Override
+            void writeExport(GripJsonWriter writer) {
+                writer.beginObject();
+                if (code != null)
+                    writer.name("code").value(code);
+                if (reason != null)
+                    writer.name("reason").value(reason);
+                if (headers != null)
+                    writer.name("headers").value(headers);
+                if (text != null)
+                    writer.name("body").value(text);
+                else if (body != null)
+                    writer.name("body-bin").base64Value(body);
+                writer.endObject();
             }
-        }
-        return export;
+        };
+        this.exportCache = cache;
+        return cache;
     }
 }
@@ -8,18 +8,18 @@
 package org.fanout.gripcontrol;
 
 import java.lang.IllegalArgumentException;
-import javax.xml.bind.DatatypeConverter;
 import java.io.UnsupportedEncodingException;
-import org.fanout.pubcontrol.Format;
 import java.util.*;
 
 /**
  * Used to publish messages to HTTP stream clients connected to a GRIP proxy.
  */
-public class HttpStreamFormat implements Format {
+public class HttpStreamFormat implements GripFormat {
     public byte[] content;
     public Boolean isClose = false;
 
+    private volatile ExportCache exportCache;
+
     /**
      * Initialize with an action.
      */
@@ -56,22 +56,57 @@ public class HttpStreamFormat implements Format {
     /**
      * Export the message into the required format.
      * Include only the fields that are set. The body is exported as base64
-     * if the byte array is binary.
+     * if the byte array is binary. The parts of the export are computed once
+     * and reused until the fields change, and a new map that can be
+     * modified is returned each time.
      */
     public Object export() {
-        Map<String, Object> export = new HashMap<String, Object>();
-        if (this.isClose) {
-            export.put("action", "close");
-        } else {
-            if (Utilities.isUtf8(this.content)) {
-                try {
-                    export.put("content", new String(this.content, "utf-8"));
-                } catch (UnsupportedEncodingException e) { }
-            } else {
-                export.put("content-bin", DatatypeConverter.printBase64Binary(this.content));
+        return exported().export();
+    }
+
+    /**
+     * Write the exported message directly as JSON.
+     * The JSON is rendered once and reused until the fields change.
+     */
+    public void exportTo(GripJsonWriter writer) {
+        writer.rawValue(exported().json());
+    }
+
+    private ExportCache exported() {
+        byte[] currentContent = this.content;
+        final Boolean isClose = this.isClose;
+        ExportCache cache = this.exportCache;
+        if (cache != null && cache.matches(currentContent, isClose, null, null))
+            return cache;
+        final byte[] content = currentContent != null ? currentContent.clone() : null;
+        final String text = isClose ? null : Utilities.utf8BytesToString(content);
+        cache = new ExportCache(content, isClose, null, null) {
+            @Override
+            Map<String, Object> buildExport() {
+                Map<String, Object> export = new LinkedHashMap<String, Object>();
+                if (isClose)
+                    export.put("action", "close");
+                else if (text != null)
+                    export.put("content", text);
+                else
+                    export.put("content-bin", base64(content));
+                return export;
+            }
+
+            @Override
+            void writeExport(GripJsonWriter writer) {
+                writer.beginObject();
+                if (isClose)
+                    writer.name("action").value("close");
+                else if (text != null)
+                    writer.name("content").value(text);
+                else
+                    writer.name("content-bin").base64Value(content);
+                writer.endObject();
             }
-        }
-        return export;
+        };
+        this.exportCache = cache;
+        return cache;
     }
 
     /**
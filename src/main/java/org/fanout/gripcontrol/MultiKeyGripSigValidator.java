@@ -0,0 +1,188 @@
+//    MultiKeyGripSigValidator.java
+//    ~~~~~~~~~
+//    This module implements the MultiKeyGripSigValidator class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Validates the GRIP-SIG header against a set of keys, for example while a
+ * key is being rotated. The token is split and its header and claims are
+ * scanned once regardless of how many keys are tried. When the token has a
+ * "kid" header matching the id of a key, only that key is tried. Otherwise,
+ * when its "iss" claim matches the issuer of one or more keys, only those
+ * keys are tried. Otherwise all keys are tried, starting with the key that
+ * most recently validated a token. The key set can be replaced at any time
+ * with setKeys; validation reads the current set without locking.
+ * Instances are thread-safe.
+ */
+public class MultiKeyGripSigValidator {
+    /**
+     * A key and the optional key id and issuer used to select it.
+     */
+    public static final class Key {
+        private final String keyId;
+        private final String issuer;
+        private final GripSigValidator validator;
+
+        /**
+         * Initialize with a raw key that is selected by neither key id nor
+         * issuer.
+         */
+        public Key(byte[] key) {
+            this(null, null, key);
+        }
+
+        /**
+         * Initialize with the key id and the issuer used to select the key,
+         * either of which may be null, and a raw key.
+         */
+        public Key(String keyId, String issuer, byte[] key) {
+            this(keyId, issuer, new GripSigValidator(key));
+        }
+
+        /**
+         * Initialize with the key id and the issuer used to select the key,
+         * either of which may be null, and the validator of the key.
+         */
+        public Key(String keyId, String issuer, GripSigValidator validator) {
+            if (validator == null)
+                throw new IllegalArgumentException("validator must be set");
+            this.keyId = keyId;
+            this.issuer = issuer;
+            this.validator = validator;
+        }
+
+        /**
+         * The key id, or null.
+         */
+        public String getKeyId() {
+            return this.keyId;
+        }
+
+        /**
+         * The issuer, or null.
+         */
+        public String getIssuer() {
+            return this.issuer;
+        }
+    }
+
+    private final AtomicReference<KeySet> keySet = new AtomicReference<KeySet>();
+
+    /**
+     * Initialize with the specified keys.
+     */
+    public MultiKeyGripSigValidator(Collection<Key> keys) {
+        setKeys(keys);
+    }
+
+    /**
+     * Initialize with the specified keys.
+     */
+    public MultiKeyGripSigValidator(Key... keys) {
+        this(Arrays.asList(keys));
+    }
+
+    /**
+     * Atomically replace the key set. Validations already in progress
+     * complete with the previous set.
+     */
+    public void setKeys(Collection<Key> keys) {
+        if (keys == null)
+            throw new IllegalArgumentException("keys must be set");
+        this.keySet.set(new KeySet(keys));
+    }
+
+    /**
+     * The current keys, in the order they are tried when neither the key
+     * id nor the issuer selects a key.
+     */
+    public List<Key> getKeys() {
+        return Collections.unmodifiableList(Arrays.asList(this.keySet.get().order.clone()));
+    }
+
+    /**
+     * Whether the specified token is valid at the current time.
+     */
+    public boolean isValid(String token) {
+        return validate(token).isValid();
+    }
+
+    /**
+     * Validate the specified token at the current time.
+     */
+    public GripSigValidator.Result validate(String token) {
+        return validate(token, System.currentTimeMillis());
+    }
+
+    /**
+     * Validate the specified token at the specified time, given in
+     * milliseconds since the epoch. Returns INVALID_SIGNATURE if no key
+     * produces the token's signature.
+     */
+    public GripSigValidator.Result validate(String token, long nowMillis) {
+        GripSigValidator.Jwt jwt = GripSigValidator.Jwt.parse(token);
+        if (jwt == null)
+            return GripSigValidator.Result.MALFORMED;
+        KeySet keys = this.keySet.get();
+        if (jwt.keyId != null) {
+            Key key = keys.byKeyId.get(jwt.keyId);
+            if (key != null)
+                return key.validator.validate(jwt, nowMillis);
+        }
+        boolean byIssuer = jwt.issuer != null && keys.issuers.contains(jwt.issuer);
+        Key[] order = keys.order;
+        for (Key key : order) {
+            if (byIssuer && !jwt.issuer.equals(key.issuer))
+                continue;
+            GripSigValidator.Result result = key.validator.validate(jwt, nowMillis);
+            if (result != GripSigValidator.Result.INVALID_SIGNATURE) {
+                // the signature matched, or the token can't be verified
+                // with any key
+                if (result != GripSigValidator.Result.UNSUPPORTED_ALGORITHM)
+                    keys.promote(order, key);
+                return result;
+            }
+        }
+        return GripSigValidator.Result.INVALID_SIGNATURE;
+    }
+
+    private static final class KeySet {
+        final Map<String, Key> byKeyId = new HashMap<String, Key>();
+        final Set<String> issuers = new HashSet<String>();
+        volatile Key[] order;
+
+        KeySet(Collection<Key> keys) {
+            this.order = keys.toArray(new Key[keys.size()]);
+            for (Key key : this.order) {
+                if (key == null)
+                    throw new IllegalArgumentException("keys must not contain null");
+                if (key.keyId != null && this.byKeyId.put(key.keyId, key) != null)
+                    throw new IllegalArgumentException("duplicate key id: " + key.keyId);
+                if (key.issuer != null)
+                    this.issuers.add(key.issuer);
+            }
+        }
+
+        // move the key to the front of the order it was found in; a lost
+        // race with another thread only costs the promotion
+        void promote(Key[] current, Key key) {
+            if (current[0] == key || this.order != current)
+                return;
+            Key[] next = new Key[current.length];
+            next[0] = key;
+            int i = 1;
+            for (Key other : current) {
+                if (other != key)
+                    next[i++] = other;
+            }
+            this.order = next;
+        }
+    }
+}
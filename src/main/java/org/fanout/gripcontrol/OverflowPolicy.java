@@ -0,0 +1,32 @@
+//    OverflowPolicy.java
+//    ~~~~~~~~~
+//    This module implements the OverflowPolicy enum.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+/**
+ * What an asynchronous publish does when the queue of publishes waiting
+ * to be sent to an endpoint is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * Wait for room in the queue.
+     */
+    BLOCK,
+    /**
+     * Fail the new publish immediately through its callback.
+     */
+    FAIL,
+    /**
+     * Remove the oldest waiting publish, failing it through its callback,
+     * and queue the new publish.
+     */
+    DROP_OLDEST,
+    /**
+     * Drop the new publish, failing it through its callback.
+     */
+    DROP_NEWEST
+}
@@ -0,0 +1,430 @@
+//    PooledHttpTransport.java
+//    ~~~~~~~~~
+//    This module implements the PooledHttpTransport class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends publish requests over HTTP/1.1 keep-alive connections, which are
+ * pooled per host and port so that TCP and TLS setup is paid once per
+ * connection rather than once per request. At most the specified number
+ * of connections is opened to each endpoint; further requests wait for a
+ * connection to be released. Idle connections are closed after a timeout.
+ * A request that fails on a reused connection before any of the response
+ * has been read, typically because the server closed the idle connection,
+ * is sent again once on a new connection, and the other idle connections
+ * to the endpoint are closed since they are likely stale too. The server
+ * may have processed the first attempt anyway, so the request may be
+ * delivered twice and items should have ids. Each connection carries one
+ * request at a time.
+ */
+public class PooledHttpTransport implements PublishTransport {
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final int maxConnections;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private volatile long idleTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+    private final ConcurrentHashMap<String, Pool> pools = new ConcurrentHashMap<String, Pool>();
+    private volatile boolean closed;
+
+    /**
+     * Initialize with the maximum number of connections to each endpoint
+     * and the connect and read timeouts in milliseconds, where zero means
+     * no timeout.
+     */
+    public PooledHttpTransport(int maxConnections, int connectTimeoutMillis, int readTimeoutMillis) {
+        if (maxConnections < 1)
+            throw new IllegalArgumentException("max connections must be positive");
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0)
+            throw new IllegalArgumentException("timeouts must not be negative");
+        this.maxConnections = maxConnections;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Close connections that have been idle for longer than the specified
+     * time. The default is 30 seconds.
+     */
+    public void setIdleTimeout(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 0)
+            throw new IllegalArgumentException("idle timeout must not be negative");
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    }
+
+    /**
+     * The number of open connections, idle or in use, to all endpoints.
+     */
+    public int getOpenConnections() {
+        int open = 0;
+        for (Pool pool : this.pools.values()) {
+            open += pool.getOpen();
+        }
+        return open;
+    }
+
+    /**
+     * Send a POST request on a pooled connection and return the response.
+     */
+    public Response publish(URL url, String authHeader, byte[] body) throws IOException {
+        if (this.closed)
+            throw new IOException("transport closed");
+        String protocol = url.getProtocol().toLowerCase();
+        if (!protocol.equals("http") && !protocol.equals("https"))
+            throw new IOException("unsupported protocol: " + protocol);
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        String key = protocol + "://" + url.getHost() + ":" + port;
+        Pool pool = this.pools.get(key);
+        if (pool == null) {
+            pool = new Pool(url.getHost(), port, protocol.equals("https"));
+            Pool existing = this.pools.putIfAbsent(key, pool);
+            if (existing != null)
+                pool = existing;
+        }
+        byte[] head = requestHead(url, port, authHeader, body.length);
+        boolean resent = false;
+        while (true) {
+            Connection connection = pool.acquire(resent);
+            boolean keepAlive = false;
+            try {
+                connection.out.write(head);
+                connection.out.write(body);
+                connection.out.flush();
+                Response response = readResponse(connection);
+                keepAlive = connection.keepAlive;
+                return response;
+            } catch (IOException e) {
+                // a timeout means the server may be processing the request
+                if (!resent && connection.reused && !connection.responseStarted &&
+                        !(e instanceof SocketTimeoutException)) {
+                    resent = true;
+                    continue;
+                }
+                throw e;
+            } finally {
+                pool.release(connection, keepAlive);
+            }
+        }
+    }
+
+    /**
+     * Close all idle connections. Connections in use are closed once their
+     * request completes, and later requests fail.
+     */
+    public void close() {
+        this.closed = true;
+        for (Pool pool : this.pools.values()) {
+            pool.closeIdle();
+        }
+    }
+
+    private static byte[] requestHead(URL url, int port, String authHeader, int contentLength) {
+        String path = url.getFile();
+        StringBuilder head = new StringBuilder(256);
+        head.append("POST ").append(path.isEmpty() ? "/" : path).append(" HTTP/1.1\r\n");
+        head.append("Host: ").append(url.getHost());
+        if (url.getPort() != -1 && url.getPort() != url.getDefaultPort())
+            head.append(':').append(port);
+        head.append("\r\nContent-Type: application/json\r\nContent-Length: ").append(contentLength).append("\r\n");
+        if (authHeader != null)
+            head.append("Authorization: ").append(authHeader).append("\r\n");
+        head.append("\r\n");
+        return head.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static Response readResponse(Connection connection) throws IOException {
+        InputStream in = connection.in;
+        int first = in.read();
+        if (first < 0)
+            throw new EOFException("connection closed");
+        connection.responseStarted = true;
+        String statusLine = readLine(in, first);
+        int code;
+        long contentLength;
+        boolean chunked;
+        boolean close;
+        boolean keepAlive;
+        while (true) {
+            if (!statusLine.startsWith("HTTP/1.") || statusLine.length() < 12)
+                throw new IOException("bad status line: " + statusLine);
+            try {
+                code = Integer.parseInt(statusLine.substring(9, 12));
+            } catch (NumberFormatException e) {
+                throw new IOException("bad status line: " + statusLine);
+            }
+            contentLength = -1;
+            chunked = false;
+            close = false;
+            keepAlive = false;
+            String line;
+            while (!(line = readLine(in, in.read())).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon < 0)
+                    continue;
+                String name = line.substring(0, colon).trim();
+                String value = line.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    try {
+                        contentLength = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("bad content length: " + value);
+                    }
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.toLowerCase().contains("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    close = value.toLowerCase().contains("close");
+                    keepAlive = value.toLowerCase().contains("keep-alive");
+                }
+            }
+            // skip interim responses such as 100 Continue
+            if (code >= 200 || code < 100)
+                break;
+            statusLine = readLine(in, in.read());
+        }
+        connection.keepAlive = statusLine.startsWith("HTTP/1.0") ? keepAlive && !close : !close;
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (code == 204 || code == 304) {
+            // no body
+        } else if (chunked) {
+            while (true) {
+                String sizeLine = readLine(in, in.read());
+                int extension = sizeLine.indexOf(';');
+                long size;
+                try {
+                    size = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("bad chunk size: " + sizeLine);
+                }
+                if (size == 0) {
+                    while (!readLine(in, in.read()).isEmpty()) {
+                        // skip trailers
+                    }
+                    break;
+                }
+                copy(in, body, size);
+                readLine(in, in.read());
+            }
+        } else if (contentLength >= 0) {
+            copy(in, body, contentLength);
+        } else {
+            connection.keepAlive = false;
+            copy(in, body, Long.MAX_VALUE);
+        }
+        return new Response(code, new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    // reads a line ending in LF, given its first byte, without the line end
+    private static String readLine(InputStream in, int first) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b = first;
+        while (b != '\n') {
+            if (b < 0)
+                throw new EOFException("connection closed");
+            if (line.length() >= MAX_LINE_LENGTH)
+                throw new IOException("line too long");
+            line.append((char)b);
+            b = in.read();
+        }
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r')
+            line.setLength(length - 1);
+        return line.toString();
+    }
+
+    // copies count bytes, or until the end of the stream if count is
+    // Long.MAX_VALUE
+    private static void copy(InputStream in, OutputStream out, long count) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (count > 0) {
+            int read = in.read(buffer, 0, (int)Math.min(buffer.length, count));
+            if (read < 0) {
+                if (count == Long.MAX_VALUE)
+                    return;
+                throw new EOFException("connection closed");
+            }
+            out.write(buffer, 0, read);
+            if (count != Long.MAX_VALUE)
+                count -= read;
+        }
+    }
+
+    private static final class Connection {
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        long idleSince;
+        boolean reused;
+        boolean responseStarted;
+        boolean keepAlive;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void close() {
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                // nothing more to release
+            }
+        }
+    }
+
+    private final class Pool {
+        private final String host;
+        private final int port;
+        private final boolean secure;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = this.lock.newCondition();
+        // most recently used first
+        private final ArrayDeque<Connection> idle = new ArrayDeque<Connection>();
+        private int open;
+
+        Pool(String host, int port, boolean secure) {
+            // URL keeps the brackets around IPv6 literals
+            this.host = host.startsWith("[") && host.endsWith("]") ?
+                    host.substring(1, host.length() - 1) : host;
+            this.port = port;
+            this.secure = secure;
+        }
+
+        int getOpen() {
+            this.lock.lock();
+            try {
+                return this.open;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        // a fresh connection is a new one, and idle connections are closed
+        // rather than reused
+        Connection acquire(boolean fresh) throws IOException {
+            List<Connection> expired = new ArrayList<Connection>();
+            this.lock.lock();
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    Connection connection;
+                    while ((connection = this.idle.peekLast()) != null &&
+                            (fresh || now - connection.idleSince >= idleTimeoutNanos)) {
+                        this.idle.pollLast();
+                        this.open--;
+                        expired.add(connection);
+                    }
+                    connection = this.idle.pollFirst();
+                    if (connection != null) {
+                        connection.reused = true;
+                        connection.responseStarted = false;
+                        return connection;
+                    }
+                    if (this.open < maxConnections) {
+                        this.open++;
+                        break;
+                    }
+                    try {
+                        this.released.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("interrupted waiting for a connection");
+                    }
+                }
+            } finally {
+                this.lock.unlock();
+                for (Connection connection : expired) {
+                    connection.close();
+                }
+            }
+            try {
+                return new Connection(connect());
+            } catch (IOException e) {
+                this.lock.lock();
+                try {
+                    this.open--;
+                    this.released.signal();
+                } finally {
+                    this.lock.unlock();
+                }
+                throw e;
+            }
+        }
+
+        void release(Connection connection, boolean keepAlive) {
+            this.lock.lock();
+            try {
+                if (keepAlive && !closed) {
+                    connection.idleSince = System.nanoTime();
+                    this.idle.addFirst(connection);
+                    connection = null;
+                } else {
+                    this.open--;
+                }
+                this.released.signal();
+            } finally {
+                this.lock.unlock();
+            }
+            if (connection != null)
+                connection.close();
+        }
+
+        void closeIdle() {
+            List<Connection> connections;
+            this.lock.lock();
+            try {
+                connections = new ArrayList<Connection>(this.idle);
+                this.open -= this.idle.size();
+                this.idle.clear();
+                this.released.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+
+        private Socket connect() throws IOException {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(this.host, this.port), connectTimeoutMillis);
+                socket.setSoTimeout(readTimeoutMillis);
+                socket.setTcpNoDelay(true);
+                if (!this.secure)
+                    return socket;
+                SSLSocket sslSocket = (SSLSocket)((SSLSocketFactory)SSLSocketFactory.getDefault())
+                        .createSocket(socket, this.host, this.port, true);
+                SSLParameters parameters = sslSocket.getSSLParameters();
+                parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                sslSocket.setSSLParameters(parameters);
+                sslSocket.startHandshake();
+                return sslSocket;
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,692 @@
+//    PublishEndpoint.java
+//    ~~~~~~~~~
+//    This module implements the PublishEndpoint class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.fanout.pubcontrol.*;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A GRIP control endpoint that publish requests are sent to.
+ * Unlike PubControlClient, an endpoint is given the already serialized
+ * body of a publish request, so the same bytes can be sent to any number
+ * of endpoints without serializing the items again. The body must not be
+ * modified after it is passed to publish or publishAsync. Asynchronous
+ * requests are sent in order by a single background thread, which is
+ * started on first use and stopped by finish. Optionally, asynchronous
+ * publishes that are waiting to be sent are coalesced into a single
+ * multi-item request, and the number of them is bounded.
+ */
+public class PublishEndpoint {
+    // JWT tokens are valid for an hour and reused for most of it
+    private static final long JWT_LIFETIME_MILLIS = 3600000;
+    private static final long JWT_RENEW_MILLIS = 600000;
+    private static final PublishTransport DEFAULT_TRANSPORT = new UrlConnectionTransport();
+    // the retry budget is kept in thousandths of a retry
+    private static final long RETRY_COST = 1000;
+    private static final long MAX_RETRY_BUDGET = 10 * RETRY_COST;
+
+    private final String uri;
+    private final URL publishUrl;
+    private volatile PublishTransport transport = DEFAULT_TRANSPORT;
+    private volatile RetryPolicy retryPolicy;
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile PublishMetrics metrics = PublishMetrics.NONE;
+    private final AtomicLong retryBudget = new AtomicLong(MAX_RETRY_BUDGET);
+    private final ReentrantLock authLock = new ReentrantLock();
+    private String authHeader;
+    private Map<String, Object> authJwtClaims;
+    private byte[] authJwtKey;
+    private long authJwtExpiresAt;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = this.lock.newCondition();
+    private final ArrayDeque<Request> queue = new ArrayDeque<Request>();
+    private int queuedItems;
+    private int queuedBytes;
+    private int maxBatchItems = 1;
+    private long lingerNanos;
+    private int maxBatchBytes = Integer.MAX_VALUE;
+    private int maxQueued = Integer.MAX_VALUE;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private int inFlight;
+    private int finishing;
+    private int flushing;
+    private boolean closed;
+    private boolean virtualThreads;
+    private Thread worker;
+
+    /**
+     * Initialize with the base URI of the GRIP control endpoint. Publishing
+     * fails if the URI is null or malformed.
+     */
+    public PublishEndpoint(String uri) {
+        this.uri = uri;
+        URL url;
+        try {
+            url = new URL(uri + "/publish/");
+        } catch (IOException e) {
+            url = null;
+        }
+        this.publishUrl = url;
+    }
+
+    /**
+     * The base URI of the GRIP control endpoint.
+     */
+    public String getUri() {
+        return this.uri;
+    }
+
+    /**
+     * Authenticate with the specified username and password.
+     */
+    public void setAuthBasic(String username, String password) {
+        this.authLock.lock();
+        try {
+            this.authJwtClaims = null;
+            this.authJwtKey = null;
+            this.authHeader = "Basic " + Base64.getEncoder().encodeToString(
+                    (username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        } finally {
+            this.authLock.unlock();
+        }
+    }
+
+    /**
+     * Authenticate with the specified bearer token.
+     */
+    public void setAuthBearer(String token) {
+        this.authLock.lock();
+        try {
+            this.authJwtClaims = null;
+            this.authJwtKey = null;
+            this.authHeader = "Bearer " + token;
+        } finally {
+            this.authLock.unlock();
+        }
+    }
+
+    /**
+     * Authenticate with JWT tokens carrying the specified claims and signed
+     * with the specified key. An expiration is added to the claims.
+     */
+    public void setAuthJwt(Map<String, Object> claims, byte[] key) {
+        this.authLock.lock();
+        try {
+            this.authJwtClaims = new HashMap<String, Object>(claims);
+            this.authJwtKey = key.clone();
+            this.authHeader = null;
+        } finally {
+            this.authLock.unlock();
+        }
+    }
+
+    /**
+     * Synchronously send the specified publish request body, retrying
+     * according to the retry policy unless the circuit breaker is open.
+     */
+    public void publish(byte[] body) throws PublishFailedException {
+        publish(body, 1);
+    }
+
+    /**
+     * Synchronously send a publish request body holding the specified
+     * number of items.
+     */
+    void publish(byte[] body, int itemCount) throws PublishFailedException {
+        if (this.publishUrl == null)
+            throw new PublishFailedException("failed to publish: bad uri");
+        RetryPolicy retryPolicy = this.retryPolicy;
+        CircuitBreaker circuitBreaker = this.circuitBreaker;
+        PublishMetrics metrics = this.metrics;
+        if (retryPolicy != null)
+            depositRetryBudget(retryPolicy.getBudgetRatio());
+        int attempt = 1;
+        PublishFailedException failure = null;
+        while (true) {
+            if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+                metrics.rejected(this);
+                // a circuit opened by the earlier attempts reports why
+                if (failure != null)
+                    throw failure;
+                throw new PublishFailedException("failed to publish: circuit open");
+            }
+            failure = null;
+            boolean retryable = false;
+            boolean success = false;
+            metrics.requestStarted(this, itemCount, body.length);
+            long start = System.nanoTime();
+            try {
+                PublishTransport.Response response = this.transport.publish(this.publishUrl,
+                        getAuthHeader(), body);
+                int code = response.getCode();
+                if (code >= 200 && code < 300) {
+                    success = true;
+                    return;
+                }
+                failure = new PublishFailedException("failed to publish: " + code + " " + response.getBody());
+                retryable = code >= 500 || code == 429;
+            } catch (IOException e) {
+                failure = new PublishFailedException("failed to publish: " + e.getMessage(), e);
+                retryable = true;
+            } finally {
+                metrics.requestCompleted(this, System.nanoTime() - start, success);
+                // every request let through is reported, including one the
+                // transport failed unexpectedly, so that a probe always ends;
+                // responses that aren't retried show that the endpoint is up
+                if (circuitBreaker != null) {
+                    if (success || (failure != null && !retryable))
+                        circuitBreaker.recordSuccess();
+                    else
+                        circuitBreaker.recordFailure();
+                }
+            }
+            if (!retryable || retryPolicy == null || attempt >= retryPolicy.getMaxAttempts() ||
+                    !withdrawRetryBudget())
+                throw failure;
+            metrics.retried(this);
+            try {
+                Thread.sleep(retryPolicy.backoffMillis(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw failure;
+            }
+            attempt++;
+        }
+    }
+
+    /**
+     * Retry failed requests according to the specified policy, or not at
+     * all if it is null, which is the default.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * The retry policy, or null if requests are not retried.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return this.retryPolicy;
+    }
+
+    /**
+     * Stop sending requests for the specified time in milliseconds once
+     * the specified number of requests in a row have failed with an I/O
+     * error, a 5xx response or a 429 response. Requests fail with a
+     * "circuit open" error meanwhile. A threshold of zero turns circuit
+     * breaking off, which is the default. See CircuitBreaker.
+     */
+    public void setCircuitBreaker(int failureThreshold, long openMillis) {
+        this.circuitBreaker = failureThreshold > 0 ? new CircuitBreaker(failureThreshold, openMillis) : null;
+    }
+
+    /**
+     * The circuit breaker, or null if circuit breaking is off.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return this.circuitBreaker;
+    }
+
+    /**
+     * Report measurements of publishing to the specified metrics. The
+     * default is PublishMetrics.NONE. Set this before publishing
+     * asynchronously, since the queue depth reported to the new metrics
+     * doesn't include publishes already queued.
+     */
+    public void setMetrics(PublishMetrics metrics) {
+        if (metrics == null)
+            throw new IllegalArgumentException("metrics must not be null");
+        this.metrics = metrics;
+    }
+
+    /**
+     * The metrics measurements are reported to.
+     */
+    public PublishMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    private void depositRetryBudget(double ratio) {
+        long deposit = (long)(ratio * RETRY_COST);
+        long balance;
+        do {
+            balance = this.retryBudget.get();
+            if (balance >= MAX_RETRY_BUDGET)
+                return;
+        } while (!this.retryBudget.compareAndSet(balance, Math.min(balance + deposit, MAX_RETRY_BUDGET)));
+    }
+
+    private boolean withdrawRetryBudget() {
+        long balance;
+        do {
+            balance = this.retryBudget.get();
+            if (balance < RETRY_COST)
+                return false;
+        } while (!this.retryBudget.compareAndSet(balance, balance - RETRY_COST));
+        return true;
+    }
+
+    /**
+     * Send requests with the specified transport rather than with the
+     * default UrlConnectionTransport. The transport is not closed by the
+     * endpoint.
+     */
+    public void setTransport(PublishTransport transport) {
+        if (transport == null)
+            throw new IllegalArgumentException("transport must not be null");
+        this.transport = transport;
+    }
+
+    /**
+     * The transport requests are sent with.
+     */
+    public PublishTransport getTransport() {
+        return this.transport;
+    }
+
+    /**
+     * Coalesce asynchronous publishes into multi-item requests. A request
+     * is sent once it holds the specified maximum number of items or
+     * bytes, or once the oldest publish in it has waited for the specified
+     * time. A single publish is never split, so it is sent on its own if
+     * it alone exceeds a maximum. Synchronous publishes are not batched.
+     */
+    public void setBatching(int maxItems, long lingerMillis, int maxBytes) {
+        if (maxItems < 1 || lingerMillis < 0 || maxBytes < 1)
+            throw new IllegalArgumentException("batching limits must be positive");
+        this.lock.lock();
+        try {
+            this.maxBatchItems = maxItems;
+            this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+            this.maxBatchBytes = maxBytes;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Limit the number of asynchronous publishes waiting to be sent, and
+     * choose what happens to a publish that finds the queue full. Publishes
+     * being sent don't count towards the limit. By default the queue is
+     * unbounded.
+     */
+    public void setQueueLimit(int maxQueued, OverflowPolicy policy) {
+        if (maxQueued < 1)
+            throw new IllegalArgumentException("queue limit must be positive");
+        if (policy == null)
+            throw new IllegalArgumentException("overflow policy must not be null");
+        this.lock.lock();
+        try {
+            this.maxQueued = maxQueued;
+            this.overflowPolicy = policy;
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Send asynchronous publishes from a virtual thread rather than a
+     * platform thread, if the JDK supports virtual threads. Takes effect
+     * the next time the background thread is started. Returns whether
+     * virtual threads will be used.
+     */
+    public boolean setVirtualThreads(boolean enabled) {
+        this.lock.lock();
+        try {
+            this.virtualThreads = enabled;
+            return enabled && Threads.isVirtualSupported();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * The number of asynchronous publishes waiting to be sent.
+     */
+    public int getQueueDepth() {
+        this.lock.lock();
+        try {
+            return this.queue.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Asynchronously send the specified publish request body. The callback
+     * is optional. Bodies of the form {"items":[...]} are batched with
+     * other publishes if batching is enabled. If the queue is full the
+     * overflow policy decides whether this waits or which publish fails.
+     */
+    public void publishAsync(byte[] body, PublishCallback callback) {
+        publishAsync(body, 1, callback);
+    }
+
+    /**
+     * Asynchronously send a publish request body holding the specified
+     * number of items. Returns the queued request, which can be passed to
+     * cancel.
+     */
+    Request publishAsync(byte[] body, int itemCount, PublishCallback callback) {
+        Request request = new Request(body, itemCount, callback);
+        List<Request> dropped = null;
+        String error = null;
+        this.lock.lock();
+        try {
+            while (error == null && !this.closed && this.queue.size() >= this.maxQueued) {
+                switch (this.overflowPolicy) {
+                    case BLOCK:
+                        try {
+                            this.changed.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            error = "failed to publish: interrupted";
+                        }
+                        break;
+                    case FAIL:
+                        error = "failed to publish: queue full";
+                        break;
+                    case DROP_NEWEST:
+                        error = "failed to publish: dropped";
+                        break;
+                    case DROP_OLDEST:
+                        if (dropped == null)
+                            dropped = new ArrayList<Request>();
+                        dropped.add(dequeue());
+                        break;
+                }
+            }
+            if (this.closed)
+                error = "failed to publish: closed";
+            if (error == null) {
+                this.queue.addLast(request);
+                this.queuedItems += request.itemCount;
+                this.queuedBytes += request.length;
+                this.metrics.queueDepthChanged(this, 1);
+                if (this.worker == null) {
+                    this.worker = Threads.newThread("gripcontrol-publish", this.virtualThreads, new Runnable() {
+                        public void run() {
+                            sendQueued();
+                        }
+                    });
+                    this.worker.start();
+                }
+                this.changed.signalAll();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        if (dropped != null)
+            complete(dropped, "failed to publish: dropped");
+        if (error != null)
+            complete(Collections.singletonList(request), error);
+        return request;
+    }
+
+    /**
+     * Remove the specified request from the queue if it hasn't been sent
+     * yet. Its callback is not called. Returns whether it was removed.
+     */
+    boolean cancel(Request request) {
+        this.lock.lock();
+        try {
+            if (!this.queue.removeFirstOccurrence(request))
+                return false;
+            this.queuedItems -= request.itemCount;
+            this.queuedBytes -= request.length;
+            this.metrics.queueDepthChanged(this, -1);
+            this.changed.signalAll();
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Wait up to the specified time for all asynchronous publishes queued
+     * so far, and any arriving meanwhile, to be sent. Batches are sent
+     * without waiting for them to fill. Returns whether the queue was
+     * drained in time.
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        this.lock.lock();
+        try {
+            this.flushing++;
+            this.changed.signalAll();
+            while (!this.queue.isEmpty() || this.inFlight > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    return false;
+                this.changed.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            this.flushing--;
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Stop accepting asynchronous publishes and spend up to the specified
+     * time sending those already queued. Publishes still queued when the
+     * time runs out fail with a "closed" error, as do later asynchronous
+     * publishes. Returns whether every queued publish was sent.
+     * Synchronous publishing is not affected.
+     */
+    public boolean close(long timeout, TimeUnit unit) {
+        stopAccepting();
+        boolean flushed = flush(timeout, unit);
+        List<Request> abandoned = new ArrayList<Request>();
+        this.lock.lock();
+        try {
+            while (!this.queue.isEmpty()) {
+                abandoned.add(dequeue());
+            }
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        complete(abandoned, "failed to publish: closed");
+        return flushed && abandoned.isEmpty();
+    }
+
+    /**
+     * Wait for all asynchronous requests to be sent and stop the
+     * background thread. The endpoint can still be used afterwards.
+     */
+    public void finish() {
+        this.lock.lock();
+        try {
+            this.finishing++;
+            this.changed.signalAll();
+            while (this.worker != null) {
+                this.changed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.finishing--;
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Make later asynchronous publishes fail with a "closed" error.
+     */
+    void stopAccepting() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // runs on the worker thread until the queue is empty and finish or
+    // close is called
+    private void sendQueued() {
+        while (true) {
+            List<Request> batch;
+            this.lock.lock();
+            try {
+                while (this.queue.isEmpty()) {
+                    if (this.finishing > 0 || this.closed) {
+                        this.worker = null;
+                        this.changed.signalAll();
+                        return;
+                    }
+                    this.changed.awaitUninterruptibly();
+                }
+                if (this.maxBatchItems > 1 && this.queue.peekFirst().batchable) {
+                    long deadline = this.queue.peekFirst().queuedAt + this.lingerNanos;
+                    long remaining;
+                    while (this.finishing == 0 && this.flushing == 0 && !this.closed &&
+                            this.queuedItems < this.maxBatchItems &&
+                            this.queuedBytes < this.maxBatchBytes &&
+                            (remaining = deadline - System.nanoTime()) > 0) {
+                        try {
+                            this.changed.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            // the worker only stops once finished
+                        }
+                    }
+                }
+                batch = takeBatch();
+                this.inFlight = batch.size();
+                this.changed.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+            send(batch);
+            this.lock.lock();
+            try {
+                this.inFlight = 0;
+                this.changed.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    private List<Request> takeBatch() {
+        List<Request> batch = new ArrayList<Request>();
+        int items = 0;
+        int bytes = 0;
+        Request request;
+        while ((request = this.queue.peekFirst()) != null) {
+            if (!batch.isEmpty() && (!request.batchable || items + request.itemCount > this.maxBatchItems ||
+                    bytes + request.length > this.maxBatchBytes))
+                break;
+            batch.add(dequeue());
+            items += request.itemCount;
+            bytes += request.length;
+            if (!request.batchable || this.maxBatchItems == 1)
+                break;
+        }
+        return batch;
+    }
+
+    private Request dequeue() {
+        Request request = this.queue.pollFirst();
+        this.queuedItems -= request.itemCount;
+        this.queuedBytes -= request.length;
+        this.metrics.queueDepthChanged(this, -1);
+        return request;
+    }
+
+    private void send(List<Request> batch) {
+        byte[] body;
+        int itemCount = 0;
+        if (batch.size() == 1) {
+            body = batch.get(0).body;
+            itemCount = batch.get(0).itemCount;
+        } else {
+            List<byte[]> bodies = new ArrayList<byte[]>(batch.size());
+            for (Request request : batch) {
+                bodies.add(request.body);
+                itemCount += request.itemCount;
+            }
+            body = PublishItem.join(bodies);
+        }
+        String error = null;
+        try {
+            publish(body, itemCount);
+        } catch (PublishFailedException e) {
+            error = e.getMessage();
+        }
+        complete(batch, error);
+    }
+
+    private static void complete(List<Request> requests, String error) {
+        for (Request request : requests) {
+            if (request.callback == null)
+                continue;
+            try {
+                request.callback.completed(error == null, error);
+            } catch (RuntimeException e) {
+                // a failing callback must not stop the worker
+            }
+        }
+    }
+
+    // a lock rather than synchronized, so that a virtual thread waiting
+    // for a token to be signed doesn't pin its carrier thread
+    private String getAuthHeader() {
+        this.authLock.lock();
+        try {
+            if (this.authJwtClaims == null)
+                return this.authHeader;
+            long now = System.currentTimeMillis();
+            if (this.authHeader == null || now >= this.authJwtExpiresAt - JWT_RENEW_MILLIS) {
+                this.authJwtExpiresAt = now + JWT_LIFETIME_MILLIS;
+                this.authHeader = "Bearer " + Jwts.builder()
+                        .setClaims(new HashMap<String, Object>(this.authJwtClaims))
+                        .setExpiration(new Date(this.authJwtExpiresAt))
+                        .signWith(SignatureAlgorithm.HS256, this.authJwtKey).compact();
+            }
+            return this.authHeader;
+        } finally {
+            this.authLock.unlock();
+        }
+    }
+
+    // an asynchronous publish waiting to be sent
+    static final class Request {
+        final byte[] body;
+        final int itemCount;
+        final PublishCallback callback;
+        final long queuedAt = System.nanoTime();
+        final boolean batchable;
+        final int length;
+
+        Request(byte[] body, int itemCount, PublishCallback callback) {
+            this.body = body;
+            this.itemCount = itemCount;
+            this.callback = callback;
+            this.batchable = PublishItem.isItemsBody(body);
+            this.length = body.length;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+//    PublishItem.java
+//    ~~~~~~~~~
+//    This module implements the PublishItem class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.fanout.pubcontrol.*;
+
+/**
+ * An item holding a single GRIP format, which can be written as JSON
+ * through the format's exportTo method rather than through its export
+ * map. Also renders the body of a publish request for any item.
+ */
+final class PublishItem extends Item {
+    private static final byte[] ITEMS_PREFIX = "{\"items\":[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ITEMS_SUFFIX = "]}".getBytes(StandardCharsets.US_ASCII);
+
+    private final GripFormat format;
+    private final String id;
+    private final String prevId;
+
+    /**
+     * Initialize with the format, id and previous id.
+     */
+    PublishItem(GripFormat format, String id, String prevId) {
+        super(Collections.<Format>singletonList(format), id, prevId);
+        this.format = format;
+        this.id = id;
+        this.prevId = prevId;
+    }
+
+    /**
+     * Render the body of a publish request for the specified item on each
+     * of the specified channels, as UTF-8 encoded JSON. The result is the
+     * same as the JSON serialized by PubControlClient. The protocol repeats
+     * the item for each channel, so the item is serialized once up to its
+     * channel member and those bytes are copied for every channel.
+     */
+    static byte[] render(List<String> channels, Item item) {
+        return render(channels, renderHead(item));
+    }
+
+    /**
+     * Serialize the specified item up to its channel member, so that the
+     * result can be rendered for several lists of channels.
+     */
+    static byte[] renderHead(Item item) {
+        GripJsonWriter writer = new GripJsonWriter();
+        writer.beginObject();
+        if (item instanceof PublishItem) {
+            ((PublishItem)item).writeMembers(writer);
+        } else {
+            for (Map.Entry<String, Object> entry : item.export().entrySet()) {
+                if (entry.getValue() != null && !entry.getKey().equals("channel"))
+                    writer.name(entry.getKey()).value(entry.getValue());
+            }
+        }
+        writer.name("channel");
+        return writer.toBytes();
+    }
+
+    /**
+     * Render the body of a publish request for the item serialized by
+     * renderHead on each of the specified channels.
+     */
+    static byte[] render(List<String> channels, byte[] head) {
+        int count = channels.size();
+        byte[][] quotedChannels = new byte[count][];
+        int length = ITEMS_PREFIX.length + ITEMS_SUFFIX.length + Math.max(count - 1, 0);
+        StringBuilder quoted = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            quoted.setLength(0);
+            GripJsonWriter.quote(quoted, channels.get(i));
+            quoted.append('}');
+            quotedChannels[i] = quoted.toString().getBytes(StandardCharsets.UTF_8);
+            length += head.length + quotedChannels[i].length;
+        }
+        byte[] body = new byte[length];
+        System.arraycopy(ITEMS_PREFIX, 0, body, 0, ITEMS_PREFIX.length);
+        int at = ITEMS_PREFIX.length;
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                body[at++] = ',';
+            System.arraycopy(head, 0, body, at, head.length);
+            at += head.length;
+            System.arraycopy(quotedChannels[i], 0, body, at, quotedChannels[i].length);
+            at += quotedChannels[i].length;
+        }
+        System.arraycopy(ITEMS_SUFFIX, 0, body, at, ITEMS_SUFFIX.length);
+        return body;
+    }
+
+    /**
+     * Whether the specified body has exactly the form written by render,
+     * so that its items can be joined with those of other bodies.
+     */
+    static boolean isItemsBody(byte[] body) {
+        int length = body.length;
+        if (length < ITEMS_PREFIX.length + ITEMS_SUFFIX.length)
+            return false;
+        for (int i = 0; i < ITEMS_PREFIX.length; i++) {
+            if (body[i] != ITEMS_PREFIX[i])
+                return false;
+        }
+        return body[length - 2] == ']' && body[length - 1] == '}';
+    }
+
+    /**
+     * Join the items of the specified bodies, which must all satisfy
+     * isItemsBody, into the body of a single publish request.
+     */
+    static byte[] join(List<byte[]> bodies) {
+        int overhead = ITEMS_PREFIX.length + ITEMS_SUFFIX.length;
+        int length = overhead;
+        int nonEmpty = 0;
+        for (byte[] body : bodies) {
+            if (body.length > overhead) {
+                length += body.length - overhead;
+                nonEmpty++;
+            }
+        }
+        if (nonEmpty > 1)
+            length += nonEmpty - 1;
+        byte[] joined = new byte[length];
+        System.arraycopy(ITEMS_PREFIX, 0, joined, 0, ITEMS_PREFIX.length);
+        int at = ITEMS_PREFIX.length;
+        for (byte[] body : bodies) {
+            int itemsLength = body.length - overhead;
+            if (itemsLength == 0)
+                continue;
+            if (at > ITEMS_PREFIX.length)
+                joined[at++] = ',';
+            System.arraycopy(body, ITEMS_PREFIX.length, joined, at, itemsLength);
+            at += itemsLength;
+        }
+        System.arraycopy(ITEMS_SUFFIX, 0, joined, at, ITEMS_SUFFIX.length);
+        return joined;
+    }
+
+    private void writeMembers(GripJsonWriter writer) {
+        writer.name(this.format.name());
+        this.format.exportTo(writer);
+        if (this.id != null)
+            writer.name("id").value(this.id);
+        if (this.prevId != null)
+            writer.name("prev-id").value(this.prevId);
+    }
+}
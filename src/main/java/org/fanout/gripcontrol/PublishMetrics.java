@@ -0,0 +1,66 @@
+//    PublishMetrics.java
+//    ~~~~~~~~~
+//    This module implements the PublishMetrics interface.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+/**
+ * Receives measurements of publishing from GripPubControl and its
+ * endpoints, to be recorded in any metrics library. Every method does
+ * nothing by default, so an implementation only overrides what it needs.
+ * The methods are called on the publishing threads, some of them while an
+ * endpoint's queue is locked, so they must be thread safe, fast and must
+ * not block or publish. CountingPublishMetrics records everything with
+ * LongAdder counters.
+ */
+public interface PublishMetrics {
+    /**
+     * Metrics that record nothing, which is the default.
+     */
+    PublishMetrics NONE = new PublishMetrics() {
+    };
+
+    /**
+     * A publish request body holding the specified number of items was
+     * serialized to the specified number of bytes.
+     */
+    default void serialized(int items, int bytes) {
+    }
+
+    /**
+     * A request holding the specified number of items and bytes is being
+     * sent to the endpoint. Each retry is a separate request.
+     */
+    default void requestStarted(PublishEndpoint endpoint, int items, int bytes) {
+    }
+
+    /**
+     * A request to the endpoint completed after the specified time,
+     * successfully or not.
+     */
+    default void requestCompleted(PublishEndpoint endpoint, long latencyNanos, boolean success) {
+    }
+
+    /**
+     * A failed request to the endpoint is about to be retried.
+     */
+    default void retried(PublishEndpoint endpoint) {
+    }
+
+    /**
+     * A request to the endpoint failed without being sent because its
+     * circuit breaker is open.
+     */
+    default void rejected(PublishEndpoint endpoint) {
+    }
+
+    /**
+     * The number of asynchronous publishes waiting to be sent to the
+     * endpoint changed by the specified amount.
+     */
+    default void queueDepthChanged(PublishEndpoint endpoint, int delta) {
+    }
+}
@@ -0,0 +1,144 @@
+//    PublishResult.java
+//    ~~~~~~~~~
+//    This module implements the PublishResult class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import org.fanout.pubcontrol.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a publish on each endpoint and client it was sent to.
+ */
+public final class PublishResult {
+    /**
+     * The outcome of a publish on one endpoint or client.
+     */
+    public static final class Outcome {
+        private final PublishEndpoint endpoint;
+        private final PubControlClient client;
+        private final PublishFailedException error;
+        private final long elapsedNanos;
+
+        Outcome(PublishEndpoint endpoint, PubControlClient client, PublishFailedException error,
+                long elapsedNanos) {
+            this.endpoint = endpoint;
+            this.client = client;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * The endpoint, or null if the publish was sent to a client.
+         */
+        public PublishEndpoint getEndpoint() {
+            return this.endpoint;
+        }
+
+        /**
+         * The client, or null if the publish was sent to an endpoint.
+         */
+        public PubControlClient getClient() {
+            return this.client;
+        }
+
+        /**
+         * Whether the publish succeeded.
+         */
+        public boolean isSuccess() {
+            return this.error == null;
+        }
+
+        /**
+         * The error if the publish failed, or null.
+         */
+        public PublishFailedException getError() {
+            return this.error;
+        }
+
+        /**
+         * How long the publish took in nanoseconds, or how long was waited
+         * for it if it timed out.
+         */
+        public long getElapsedNanos() {
+            return this.elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            String target = this.endpoint != null ? this.endpoint.getUri() : "client";
+            return target + ": " + (this.error == null ? "ok" : this.error.getMessage());
+        }
+    }
+
+    private final List<Outcome> outcomes;
+
+    PublishResult(List<Outcome> outcomes) {
+        this.outcomes = Collections.unmodifiableList(outcomes);
+    }
+
+    /**
+     * The outcome on each endpoint, followed by the outcome on each client.
+     */
+    public List<Outcome> getOutcomes() {
+        return this.outcomes;
+    }
+
+    /**
+     * Whether the publish succeeded everywhere.
+     */
+    public boolean isSuccess() {
+        for (Outcome outcome : this.outcomes) {
+            if (!outcome.isSuccess())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * The outcomes of the endpoints and clients the publish succeeded on.
+     */
+    public List<Outcome> getSucceeded() {
+        List<Outcome> succeeded = new ArrayList<Outcome>();
+        for (Outcome outcome : this.outcomes) {
+            if (outcome.isSuccess())
+                succeeded.add(outcome);
+        }
+        return succeeded;
+    }
+
+    /**
+     * The outcomes of the endpoints and clients the publish failed on.
+     */
+    public List<Outcome> getFailed() {
+        List<Outcome> failed = new ArrayList<Outcome>();
+        for (Outcome outcome : this.outcomes) {
+            if (!outcome.isSuccess())
+                failed.add(outcome);
+        }
+        return failed;
+    }
+
+    /**
+     * The error of the first endpoint or client the publish failed on, or
+     * null if it succeeded everywhere.
+     */
+    public PublishFailedException getFirstError() {
+        for (Outcome outcome : this.outcomes) {
+            if (!outcome.isSuccess())
+                return outcome.getError();
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return this.outcomes.toString();
+    }
+}
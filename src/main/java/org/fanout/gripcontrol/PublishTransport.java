@@ -0,0 +1,62 @@
+//    PublishTransport.java
+//    ~~~~~~~~~
+//    This module implements the PublishTransport interface.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Sends publish requests to GRIP control endpoints over HTTP. A
+ * PublishEndpoint uses UrlConnectionTransport unless another transport is
+ * set, such as a PooledHttpTransport. Implementations must be thread
+ * safe, since one transport can be shared by any number of endpoints.
+ */
+public interface PublishTransport {
+    /**
+     * Send a POST request with the specified JSON body to the specified
+     * URL and return the response. The authorization header is optional.
+     * Throws an IOException if no response could be read.
+     */
+    Response publish(URL url, String authHeader, byte[] body) throws IOException;
+
+    /**
+     * Release the resources held by the transport, such as open
+     * connections.
+     */
+    void close();
+
+    /**
+     * The status code and body of a response.
+     */
+    final class Response {
+        private final int code;
+        private final String body;
+
+        /**
+         * Initialize with the status code and body.
+         */
+        public Response(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+
+        /**
+         * The status code.
+         */
+        public int getCode() {
+            return this.code;
+        }
+
+        /**
+         * The body, decoded as UTF-8.
+         */
+        public String getBody() {
+            return this.body;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+//    RetryPolicy.java
+//    ~~~~~~~~~
+//    This module implements the RetryPolicy class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a PublishEndpoint retries a request that failed with an I/O error,
+ * a 5xx response or a 429 response. Retries wait for an exponentially
+ * growing backoff with full jitter, so that publishers don't retry in
+ * step. Retries are also limited by a budget: each publish adds the
+ * specified fraction of a retry to a reserve of at most ten retries, and
+ * each retry takes one, so an endpoint that keeps failing is not sent
+ * more than that fraction of extra requests. A request whose response
+ * was lost may be delivered twice, so items should have ids. Instances
+ * can't be modified and can be shared between endpoints.
+ */
+public final class RetryPolicy {
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double budgetRatio;
+
+    /**
+     * Initialize with the maximum number of attempts including the first,
+     * the backoff before the first retry and the maximum backoff in
+     * milliseconds, and the fraction of publishes that may be retried.
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, double budgetRatio) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("max attempts must be positive");
+        if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis)
+            throw new IllegalArgumentException("backoff must not be negative or above the maximum");
+        if (!(budgetRatio >= 0))
+            throw new IllegalArgumentException("budget ratio must not be negative");
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.budgetRatio = budgetRatio;
+    }
+
+    /**
+     * The maximum number of attempts, including the first.
+     */
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    /**
+     * The backoff before the first retry in milliseconds.
+     */
+    public long getInitialBackoffMillis() {
+        return this.initialBackoffMillis;
+    }
+
+    /**
+     * The maximum backoff in milliseconds.
+     */
+    public long getMaxBackoffMillis() {
+        return this.maxBackoffMillis;
+    }
+
+    /**
+     * The fraction of publishes that may be retried.
+     */
+    public double getBudgetRatio() {
+        return this.budgetRatio;
+    }
+
+    /**
+     * A random backoff in milliseconds before the retry following the
+     * specified failed attempt, between zero and the initial backoff
+     * doubled for each earlier attempt, up to the maximum.
+     */
+    public long backoffMillis(int attempt) {
+        long cap = this.initialBackoffMillis;
+        for (int i = 1; i < attempt && cap < this.maxBackoffMillis; i++) {
+            cap = cap <= this.maxBackoffMillis / 2 ? cap * 2 : this.maxBackoffMillis;
+        }
+        if (cap == 0)
+            return 0;
+        return ThreadLocalRandom.current().nextLong(cap < Long.MAX_VALUE ? cap + 1 : cap);
+    }
+}
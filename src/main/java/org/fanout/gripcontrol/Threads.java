@@ -0,0 +1,99 @@
+//    Threads.java
+//    ~~~~~~~~~
+//    This module implements the Threads class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+
+/**
+ * Creates the background threads used for publishing. Virtual threads
+ * are created through reflection, so the library still builds for and
+ * runs on Java 8, where platform threads are used instead.
+ */
+final class Threads {
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method UNSTARTED;
+    private static ExecutorService pool;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method unstarted = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNSTARTED = unstarted;
+    }
+
+    private Threads() {
+    }
+
+    /**
+     * Whether the JDK supports virtual threads.
+     */
+    static boolean isVirtualSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Create an unstarted daemon thread with the specified name. It is a
+     * virtual thread if requested and supported, and a platform thread
+     * otherwise.
+     */
+    static Thread newThread(String name, boolean virtual, Runnable runnable) {
+        if (virtual && OF_VIRTUAL != null) {
+            try {
+                Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name);
+                return (Thread)UNSTARTED.invoke(builder, runnable);
+            } catch (ReflectiveOperationException e) {
+                // fall back to a platform thread
+            }
+        }
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * An executor for short-lived blocking tasks. With virtual threads
+     * requested and supported, each task gets its own virtual thread;
+     * otherwise tasks run on a shared pool of daemon threads, named
+     * gripcontrol-pool, which grows as needed and shrinks once threads are
+     * idle for a minute.
+     */
+    static Executor executor(final String name, boolean virtual) {
+        if (virtual && OF_VIRTUAL != null) {
+            return new Executor() {
+                public void execute(Runnable runnable) {
+                    newThread(name, true, runnable).start();
+                }
+            };
+        }
+        return getPool();
+    }
+
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                        public Thread newThread(Runnable runnable) {
+                            return Threads.newThread("gripcontrol-pool", false, runnable);
+                        }
+                    });
+        }
+        return pool;
+    }
+}
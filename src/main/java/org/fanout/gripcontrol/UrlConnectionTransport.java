@@ -0,0 +1,91 @@
+//    UrlConnectionTransport.java
+//    ~~~~~~~~~
+//    This module implements the UrlConnectionTransport class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends publish requests with HttpURLConnection. Connections are reused
+ * through the JDK's own keep-alive cache, whose size is set by the
+ * http.maxConnections system property rather than per transport.
+ */
+public class UrlConnectionTransport implements PublishTransport {
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    /**
+     * Initialize without timeouts.
+     */
+    public UrlConnectionTransport() {
+        this(0, 0);
+    }
+
+    /**
+     * Initialize with the connect and read timeouts in milliseconds, where
+     * zero means no timeout.
+     */
+    public UrlConnectionTransport(int connectTimeoutMillis, int readTimeoutMillis) {
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0)
+            throw new IllegalArgumentException("timeouts must not be negative");
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Send a POST request and return the response.
+     */
+    public Response publish(URL url, String authHeader, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+        try {
+            connection.setConnectTimeout(this.connectTimeoutMillis);
+            connection.setReadTimeout(this.readTimeoutMillis);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setUseCaches(false);
+            if (authHeader != null)
+                connection.setRequestProperty("Authorization", authHeader);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setFixedLengthStreamingMode(body.length);
+            OutputStream out = connection.getOutputStream();
+            out.write(body);
+            out.close();
+            int code = connection.getResponseCode();
+            InputStream in = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+            return new Response(code, in != null ? readFully(in) : "");
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Does nothing, since the connections belong to the JDK.
+     */
+    public void close() {
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        try {
+            while ((count = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
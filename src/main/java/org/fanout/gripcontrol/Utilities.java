@@ -7,10 +7,6 @@
 
 package org.fanout.gripcontrol;
 
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.net.*;
@@ -20,39 +16,181 @@ import java.io.UnsupportedEncodingException;
  * Static utilities used with the GRIP features.
  */
 public class Utilities {
+    // the value JAXB gives '=' when decoding base64, which is decoded like
+    // any other character when it isn't in the last two places of a group
+    private static final int BASE64_PADDING = 127;
 
     public static String utf8BytesToString(byte[] bytes) {
-        String asString;
-        try {
-            ByteBuffer buffer = ByteBuffer.wrap(bytes);
-            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
-            CharBuffer charBuffer = decoder.decode(buffer);
-            asString = charBuffer.toString();
-        } catch(CharacterCodingException ex) {
-            asString = null;
-        }
+        return utf8BytesToString(bytes, 0, bytes.length);
+    }
 
-        return asString;
+    /**
+     * Decode the specified range of a UTF-8 byte array.
+     * Returns null if the range is not valid UTF-8. The range is validated
+     * and then decoded once, so callers that need both the validation and
+     * the string should use this rather than isUtf8.
+     */
+    public static String utf8BytesToString(byte[] bytes, int offset, int length) {
+        if (utf16Length(bytes, offset, length) < 0)
+            return null;
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
     }
 
     /**
      * Returns the number of UTF-8 characters.
+     * This is the length of the decoded string, or -1 if the bytes are
+     * not valid UTF-8. The bytes are not decoded.
      */
     public static int charLength(byte[] bytes) {
-        String asString = utf8BytesToString(bytes);
+        return utf16Length(bytes, 0, bytes.length);
+    }
 
-        if (asString == null) {
-            return -1;
+    /**
+     * Returns the number of bytes needed to encode the specified characters
+     * as UTF-8, without encoding them. Unpaired surrogates count as the
+     * single replacement byte written by String.getBytes.
+     */
+    public static int utf8Length(CharSequence chars) {
+        int length = chars.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80)
+                continue;
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                    Character.isLowSurrogate(chars.charAt(i + 1))) {
+                bytes += 2;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // encoded as '?'
+            } else {
+                bytes += 2;
+            }
         }
-
-        return asString.length();
+        return bytes;
     }
 
     /**
      * Validate a UTF-8 byte array.
      */
     public static boolean isUtf8(byte[] bytes) {
-        return utf8BytesToString(bytes) != null;
+        return utf16Length(bytes, 0, bytes.length) >= 0;
+    }
+
+    /**
+     * Validate the specified range of a UTF-8 byte array.
+     */
+    public static boolean isUtf8(byte[] bytes, int offset, int length) {
+        return utf16Length(bytes, offset, length) >= 0;
+    }
+
+    /**
+     * Returns the number of UTF-16 chars the specified range decodes to,
+     * or -1 if it is not valid UTF-8. Rejects the same sequences as the
+     * JDK's UTF-8 decoder: overlong encodings, surrogates and code points
+     * above U+10FFFF. Runs of ASCII are checked 8 bytes at a time and
+     * nothing is allocated.
+     */
+    private static int utf16Length(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length)
+            throw new IndexOutOfBoundsException();
+        int end = offset + length;
+        int chars = 0;
+        int i = offset;
+        while (i < end) {
+            while (i <= end - 8 && ((bytes[i] | bytes[i + 1] | bytes[i + 2] | bytes[i + 3] |
+                    bytes[i + 4] | bytes[i + 5] | bytes[i + 6] | bytes[i + 7]) & 0x80) == 0) {
+                i += 8;
+                chars += 8;
+            }
+            if (i == end)
+                break;
+            int lead = bytes[i] & 0xff;
+            if (lead < 0x80) {
+                i++;
+                chars++;
+            } else if (lead < 0xc2) {
+                return -1;
+            } else if (lead < 0xe0) {
+                if (i + 1 >= end || !isContinuation(bytes[i + 1]))
+                    return -1;
+                i += 2;
+                chars++;
+            } else if (lead < 0xf0) {
+                if (i + 2 >= end)
+                    return -1;
+                int second = bytes[i + 1] & 0xff;
+                if ((lead == 0xe0 && second < 0xa0) || (lead == 0xed && second >= 0xa0) ||
+                        !isContinuation(bytes[i + 1]) || !isContinuation(bytes[i + 2]))
+                    return -1;
+                i += 3;
+                chars++;
+            } else if (lead < 0xf5) {
+                if (i + 3 >= end)
+                    return -1;
+                int second = bytes[i + 1] & 0xff;
+                if ((lead == 0xf0 && second < 0x90) || (lead == 0xf4 && second >= 0x90) ||
+                        !isContinuation(bytes[i + 1]) || !isContinuation(bytes[i + 2]) ||
+                        !isContinuation(bytes[i + 3]))
+                    return -1;
+                i += 4;
+                chars += 2;
+            } else {
+                return -1;
+            }
+        }
+        return chars;
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xc0) == 0x80;
+    }
+
+    /**
+     * Decode a base64 encoded key exactly like the JAXB DatatypeConverter
+     * used previously, so that existing keys decode to the same bytes:
+     * characters outside the base64 alphabet, such as line breaks, are
+     * ignored, and a trailing partial group of fewer than four characters
+     * is dropped rather than rejected.
+     */
+    public static byte[] decodeBase64(String value) {
+        byte[] out = new byte[value.length() / 4 * 3];
+        int length = 0;
+        int[] quad = new int[4];
+        int q = 0;
+        for (int i = 0; i < value.length(); i++) {
+            int v = base64Value(value.charAt(i));
+            if (v == -1)
+                continue;
+            quad[q++] = v;
+            if (q == 4) {
+                out[length++] = (byte)((quad[0] << 2) | (quad[1] >> 4));
+                if (quad[2] != BASE64_PADDING)
+                    out[length++] = (byte)((quad[1] << 4) | (quad[2] >> 2));
+                if (quad[3] != BASE64_PADDING)
+                    out[length++] = (byte)((quad[2] << 6) | quad[3]);
+                q = 0;
+            }
+        }
+        return length == out.length ? out : Arrays.copyOf(out, length);
+    }
+
+    private static int base64Value(char c) {
+        if (c >= 'A' && c <= 'Z')
+            return c - 'A';
+        if (c >= 'a' && c <= 'z')
+            return c - 'a' + 26;
+        if (c >= '0' && c <= '9')
+            return c - '0' + 52;
+        if (c == '+')
+            return 62;
+        if (c == '/')
+            return 63;
+        if (c == '=')
+            return BASE64_PADDING;
+        return -1;
     }
 
     /**
@@ -7,12 +7,6 @@
 
 package org.fanout.gripcontrol;
 
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.StandardCharsets;
-
 /**
  * Event information used with the GRIP WebSocket-over-HTTP protocol.
  * Includes information about the type of event as well as an optional content field.
@@ -43,18 +37,7 @@ public class WebSocketEvent {
 
     public WebSocketEvent(String type, byte[] contentBytes) {
         this.type = type;
-
-        String asString;
-        try {
-            ByteBuffer buffer = ByteBuffer.wrap(contentBytes);
-            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
-            CharBuffer charBuffer = decoder.decode(buffer);
-            asString = charBuffer.toString();
-        } catch(CharacterCodingException ex) {
-            asString = null;
-        }
-
-        this.content = asString;
+        this.content = Utilities.utf8BytesToString(contentBytes);
         this.contentBytes = contentBytes;
     }
 }
@@ -0,0 +1,200 @@
+//    WebSocketEventDecoder.java
+//    ~~~~~~~~~
+//    This module implements the WebSocketEventDecoder class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * A resumable decoder for WebSocket-over-HTTP request bodies.
+ * Unlike GripControl.decodeWebSocketEvents, which requires the whole body
+ * up front, chunks of the body can be fed to this decoder as they arrive
+ * and WebSocketEvent instances are emitted as soon as each event is
+ * complete. Partial type lines and partial content are kept between calls,
+ * so at most one event is buffered at a time. Instances are not thread-safe.
+ * An IllegalArgumentException is raised if the format is invalid.
+ */
+public class WebSocketEventDecoder {
+    private static final int MAX_TYPE_LINE_LENGTH = 256;
+
+    private static final int STATE_TYPE_LINE = 0;
+    private static final int STATE_CONTENT = 1;
+    private static final int STATE_CONTENT_CR = 2;
+    private static final int STATE_CONTENT_LF = 3;
+
+    private final int maxContentLength;
+    private final byte[] line = new byte[MAX_TYPE_LINE_LENGTH];
+    private int lineLength;
+    private int state = STATE_TYPE_LINE;
+    private String type;
+    private byte[] content;
+    private int contentOffset;
+
+    /**
+     * Initialize without a limit on the content length of a single event.
+     */
+    public WebSocketEventDecoder() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Initialize with the maximum content length accepted for a single event.
+     * Events announcing a larger content length are rejected before any of
+     * their content is buffered.
+     */
+    public WebSocketEventDecoder(int maxContentLength) {
+        if (maxContentLength < 0)
+            throw new IllegalArgumentException("maxContentLength must not be negative");
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * Feed the specified chunk of the request body to the decoder and
+     * return the events completed by it.
+     */
+    public List<WebSocketEvent> feed(byte[] bytes) {
+        return feed(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Feed the specified range of a chunk of the request body to the decoder
+     * and return the events completed by it.
+     */
+    public List<WebSocketEvent> feed(byte[] bytes, int offset, int length) {
+        List<WebSocketEvent> events = new ArrayList<WebSocketEvent>();
+        feed(ByteBuffer.wrap(bytes, offset, length), events);
+        return events;
+    }
+
+    /**
+     * Feed the remaining bytes of the specified buffer to the decoder and
+     * return the events completed by them. The buffer is fully consumed.
+     */
+    public List<WebSocketEvent> feed(ByteBuffer buffer) {
+        List<WebSocketEvent> events = new ArrayList<WebSocketEvent>();
+        feed(buffer, events);
+        return events;
+    }
+
+    /**
+     * Feed the remaining bytes of the specified buffer to the decoder and
+     * add the events completed by them to the specified list. The buffer is
+     * fully consumed. Returns the number of events added.
+     */
+    public int feed(ByteBuffer buffer, List<WebSocketEvent> events) {
+        int count = 0;
+        while (buffer.hasRemaining()) {
+            switch (state) {
+                case STATE_TYPE_LINE:
+                    if (readTypeLine(buffer)) {
+                        WebSocketEvent event = parseTypeLine();
+                        if (event != null) {
+                            events.add(event);
+                            count++;
+                        }
+                    }
+                    break;
+                case STATE_CONTENT:
+                    int n = Math.min(buffer.remaining(), content.length - contentOffset);
+                    buffer.get(content, contentOffset, n);
+                    contentOffset += n;
+                    if (contentOffset == content.length)
+                        state = STATE_CONTENT_CR;
+                    break;
+                case STATE_CONTENT_CR:
+                    expect(buffer.get(), (byte)'\r');
+                    state = STATE_CONTENT_LF;
+                    break;
+                case STATE_CONTENT_LF:
+                    expect(buffer.get(), (byte)'\n');
+                    events.add(new WebSocketEvent(type, content));
+                    count++;
+                    type = null;
+                    content = null;
+                    state = STATE_TYPE_LINE;
+                    break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Whether the decoder is between events, i.e. it holds no partial
+     * type line or content.
+     */
+    public boolean isIdle() {
+        return state == STATE_TYPE_LINE && lineLength == 0;
+    }
+
+    /**
+     * Signal the end of the request body.
+     * An IllegalArgumentException is raised if a partial event is pending.
+     */
+    public void finish() {
+        if (!isIdle())
+            throw new IllegalArgumentException("bad format");
+    }
+
+    /**
+     * Discard any partial event so that the decoder can be reused for
+     * another request body.
+     */
+    public void reset() {
+        lineLength = 0;
+        state = STATE_TYPE_LINE;
+        type = null;
+        content = null;
+        contentOffset = 0;
+    }
+
+    /**
+     * Append bytes to the pending type line until a CRLF is found.
+     * Returns true once the line is complete.
+     */
+    private boolean readTypeLine(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n' && lineLength > 0 && line[lineLength - 1] == '\r') {
+                lineLength--;
+                return true;
+            }
+            if (lineLength == line.length)
+                throw new IllegalArgumentException("bad format");
+            line[lineLength++] = b;
+        }
+        return false;
+    }
+
+    /**
+     * Parse the completed type line. Events without content are returned
+     * immediately, otherwise the decoder switches to reading content and
+     * null is returned.
+     */
+    private WebSocketEvent parseTypeLine() {
+        int at = WebSocketEventParser.indexOfSpace(line, 0, lineLength);
+        if (at < 0) {
+            String etype = WebSocketEventParser.parseType(line, 0, lineLength);
+            lineLength = 0;
+            return new WebSocketEvent(etype);
+        }
+        type = WebSocketEventParser.parseType(line, 0, at);
+        int clen = WebSocketEventParser.parseHexLength(line, at + 1, lineLength - at - 1);
+        lineLength = 0;
+        if (clen > maxContentLength)
+            throw new IllegalArgumentException("bad format");
+        content = new byte[clen];
+        contentOffset = 0;
+        state = clen > 0 ? STATE_CONTENT : STATE_CONTENT_CR;
+        return null;
+    }
+
+    private static void expect(byte actual, byte expected) {
+        if (actual != expected)
+            throw new IllegalArgumentException("bad format");
+    }
+}
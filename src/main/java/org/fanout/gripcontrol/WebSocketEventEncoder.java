@@ -0,0 +1,211 @@
+//    WebSocketEventEncoder.java
+//    ~~~~~~~~~
+//    This module implements the WebSocketEventEncoder class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Encodes WebSocketEvent instances for the GRIP WebSocket-over-HTTP protocol
+ * directly into caller supplied buffers, streams or channels.
+ * The exact encoded size can be computed up front with encodedLength so
+ * that the output can be written without intermediate strings or growing
+ * buffers. The encoded bytes are identical to those returned by
+ * GripControl.encodeWebSocketEventsBinary.
+ */
+public class WebSocketEventEncoder {
+    private static final byte[] HEX_DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    /**
+     * Get the exact number of bytes required to encode the specified events.
+     */
+    public static int encodedLength(List<WebSocketEvent> webSocketEvents) {
+        long length = 0;
+        for (WebSocketEvent event : webSocketEvents) {
+            length += headerLength(event);
+            if (event.contentBytes != null)
+                length += event.contentBytes.length;
+        }
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("encoded events too large");
+        return (int)length;
+    }
+
+    /**
+     * Encode the specified events into a new byte array of the exact size.
+     */
+    public static byte[] encode(List<WebSocketEvent> webSocketEvents) {
+        byte[] out = new byte[encodedLength(webSocketEvents)];
+        encode(webSocketEvents, ByteBuffer.wrap(out));
+        return out;
+    }
+
+    /**
+     * Encode the specified events into the specified buffer starting at its
+     * current position. A BufferOverflowException is raised without writing
+     * anything if the remaining space is smaller than encodedLength.
+     * Returns the number of bytes written.
+     */
+    public static int encode(List<WebSocketEvent> webSocketEvents, ByteBuffer out) {
+        int length = encodedLength(webSocketEvents);
+        if (out.remaining() < length)
+            throw new BufferOverflowException();
+        for (WebSocketEvent event : webSocketEvents) {
+            putHeader(event, out);
+            if (event.contentBytes != null) {
+                out.put(event.contentBytes);
+                out.put((byte)'\r').put((byte)'\n');
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Encode the specified events to the specified stream. Type lines are
+     * batched through a single buffer and content is written directly from
+     * each event. The stream is neither flushed nor closed.
+     * Returns the number of bytes written.
+     */
+    public static int encode(List<WebSocketEvent> webSocketEvents, OutputStream out) throws IOException {
+        int length = encodedLength(webSocketEvents);
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, STREAM_BUFFER_SIZE));
+        for (WebSocketEvent event : webSocketEvents) {
+            int headerLength = headerLength(event);
+            if (buffer.remaining() < headerLength) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            if (buffer.remaining() < headerLength) {
+                out.write(headerBytes(event));
+            } else {
+                putHeader(event, buffer);
+            }
+            if (event.contentBytes != null) {
+                int contentLength = event.contentBytes.length;
+                if (buffer.remaining() >= contentLength + 2) {
+                    buffer.put(event.contentBytes);
+                } else {
+                    out.write(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                    out.write(event.contentBytes);
+                }
+                buffer.put((byte)'\r').put((byte)'\n');
+            }
+        }
+        out.write(buffer.array(), 0, buffer.position());
+        return length;
+    }
+
+    /**
+     * Encode the specified events to the specified channel. Type lines are
+     * batched through a single buffer and content is written directly from
+     * each event. The channel is not closed.
+     * Returns the number of bytes written.
+     */
+    public static int encode(List<WebSocketEvent> webSocketEvents, WritableByteChannel out) throws IOException {
+        int length = encodedLength(webSocketEvents);
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, STREAM_BUFFER_SIZE));
+        for (WebSocketEvent event : webSocketEvents) {
+            int headerLength = headerLength(event);
+            if (buffer.remaining() < headerLength)
+                drain(buffer, out);
+            if (buffer.remaining() < headerLength) {
+                writeFully(ByteBuffer.wrap(headerBytes(event)), out);
+            } else {
+                putHeader(event, buffer);
+            }
+            if (event.contentBytes != null) {
+                int contentLength = event.contentBytes.length;
+                if (buffer.remaining() >= contentLength + 2) {
+                    buffer.put(event.contentBytes);
+                } else {
+                    drain(buffer, out);
+                    writeFully(ByteBuffer.wrap(event.contentBytes), out);
+                }
+                buffer.put((byte)'\r').put((byte)'\n');
+            }
+        }
+        drain(buffer, out);
+        return length;
+    }
+
+    /**
+     * The number of bytes taken by the specified event excluding its content:
+     * the type line with its CRLF and, if there is content, the trailing CRLF.
+     */
+    private static int headerLength(WebSocketEvent event) {
+        int length = Utilities.utf8Length(event.type) + 2;
+        if (event.contentBytes != null)
+            length += 1 + hexLength(event.contentBytes.length) + 2;
+        return length;
+    }
+
+    /**
+     * The number of lowercase hex digits needed for the specified length.
+     */
+    private static int hexLength(int value) {
+        if (value == 0)
+            return 1;
+        return (35 - Integer.numberOfLeadingZeros(value)) / 4;
+    }
+
+    /**
+     * Write the type line of the specified event, including the content
+     * length if there is content, followed by CRLF.
+     */
+    private static void putHeader(WebSocketEvent event, ByteBuffer out) {
+        String type = event.type;
+        for (int i = 0; i < type.length(); i++) {
+            char c = type.charAt(i);
+            if (c >= 0x80) {
+                out.put(type.substring(i).getBytes(StandardCharsets.UTF_8));
+                break;
+            }
+            out.put((byte)c);
+        }
+        if (event.contentBytes != null) {
+            out.put((byte)' ');
+            int value = event.contentBytes.length;
+            for (int shift = (hexLength(value) - 1) * 4; shift >= 0; shift -= 4) {
+                out.put(HEX_DIGITS[(value >>> shift) & 0xf]);
+            }
+        }
+        out.put((byte)'\r').put((byte)'\n');
+    }
+
+    /**
+     * The type line of the specified event as a new array. Only used for
+     * type lines that do not fit into the stream buffer.
+     */
+    private static byte[] headerBytes(WebSocketEvent event) {
+        ByteBuffer buffer = ByteBuffer.allocate(headerLength(event));
+        putHeader(event, buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+        buffer.flip();
+        writeFully(buffer, out);
+        buffer.clear();
+    }
+
+    private static void writeFully(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+//    WebSocketEventParser.java
+//    ~~~~~~~~~
+//    This module implements the WebSocketEventParser class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte level helpers shared by the WebSocket-over-HTTP decoders.
+ * CRLF scanning reads eight bytes at a time and tests them for a carriage
+ * return with SWAR arithmetic, type lines are parsed without building
+ * intermediate strings, and the event types defined by the protocol are
+ * returned as shared constants.
+ */
+final class WebSocketEventParser {
+    private static final long CR_MASK = 0x0d0d0d0d0d0d0d0dL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static final String[] KNOWN_TYPES = {
+        "OPEN", "TEXT", "BINARY", "PING", "PONG", "CLOSE", "DISCONNECT"
+    };
+    private static final byte[][] KNOWN_TYPE_BYTES = new byte[KNOWN_TYPES.length][];
+
+    static {
+        for (int i = 0; i < KNOWN_TYPES.length; i++) {
+            KNOWN_TYPE_BYTES[i] = KNOWN_TYPES[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private WebSocketEventParser() {
+    }
+
+    /**
+     * Wrap the specified array for use with indexOfCrlf.
+     */
+    static ByteBuffer wordView(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Find the index of the first CRLF in the specified range of the array,
+     * or -1 if there is none. The words argument must be the result of
+     * wordView for the same array.
+     */
+    static int indexOfCrlf(byte[] bytes, ByteBuffer words, int from, int to) {
+        int i = from;
+        // the last byte can only ever be a \n, so only scan up to it for \r
+        int end = to - 1;
+        while (i + 8 <= end) {
+            long word = words.getLong(i) ^ CR_MASK;
+            long found = (word - LOW_BITS) & ~word & HIGH_BITS;
+            if (found == 0) {
+                i += 8;
+                continue;
+            }
+            // the lowest flagged byte is always a real match
+            int at = i + (Long.numberOfTrailingZeros(found) >>> 3);
+            if (bytes[at + 1] == '\n')
+                return at;
+            i = at + 1;
+        }
+        for (; i < end; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n')
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the index of the first space in the specified range of the array,
+     * or -1 if there is none.
+     */
+    static int indexOfSpace(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == ' ')
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the event type held in the specified range of the array. The known
+     * event types are returned without allocating.
+     */
+    static String parseType(byte[] bytes, int offset, int length) {
+        for (int i = 0; i < KNOWN_TYPE_BYTES.length; i++) {
+            byte[] known = KNOWN_TYPE_BYTES[i];
+            if (known.length == length && regionMatches(bytes, offset, known))
+                return KNOWN_TYPES[i];
+        }
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse the hexadecimal content length held in the specified range of
+     * the array. An IllegalArgumentException is raised if the range is empty,
+     * contains anything but hex digits or does not fit into an int.
+     */
+    static int parseHexLength(byte[] bytes, int offset, int length) {
+        if (length == 0)
+            throw new IllegalArgumentException("bad format");
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int b = bytes[i];
+            int digit;
+            if (b >= '0' && b <= '9') {
+                digit = b - '0';
+            } else if (b >= 'a' && b <= 'f') {
+                digit = b - 'a' + 10;
+            } else if (b >= 'A' && b <= 'F') {
+                digit = b - 'A' + 10;
+            } else {
+                throw new IllegalArgumentException("bad format");
+            }
+            if ((value & 0xf8000000) != 0)
+                throw new IllegalArgumentException("bad format");
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static boolean regionMatches(byte[] bytes, int offset, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes[offset + i] != expected[i])
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,131 @@
+//    WebSocketEventView.java
+//    ~~~~~~~~~
+//    This module implements the WebSocketEventView class.
+//    :authors: Fanout, Inc.
+//    :copyright: (c) 2026 by Fanout, Inc.
+//    :license: MIT, see LICENSE for more details.
+
+package org.fanout.gripcontrol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view of an event decoded from a WebSocket-over-HTTP request body.
+ * Unlike WebSocketEvent, the content is not copied out of the request body:
+ * the view refers to a slice of the original byte array and only decodes
+ * the content into a String the first time getContent is called. The
+ * request body must therefore not be modified while views of it are in use.
+ */
+public class WebSocketEventView {
+    private static final String INVALID_UTF8 = new String("");
+
+    private final String type;
+    private final byte[] body;
+    private final int offset;
+    private final int length;
+    private String content;
+
+    /**
+     * Initialize with a specified event type and no content.
+     */
+    public WebSocketEventView(String type) {
+        this.type = type;
+        this.body = null;
+        this.offset = 0;
+        this.length = -1;
+    }
+
+    /**
+     * Initialize with a specified event type and the range of the specified
+     * request body that holds the content.
+     */
+    public WebSocketEventView(String type, byte[] body, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > body.length - length)
+            throw new IndexOutOfBoundsException();
+        this.type = type;
+        this.body = body;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * The event type.
+     */
+    public String getType() {
+        return this.type;
+    }
+
+    /**
+     * Whether the event carries content.
+     */
+    public boolean hasContent() {
+        return this.body != null;
+    }
+
+    /**
+     * The content length in bytes, or -1 if the event has no content.
+     */
+    public int getContentLength() {
+        return this.length;
+    }
+
+    /**
+     * The content as a read-only buffer sharing the request body, or null
+     * if the event has no content.
+     */
+    public ByteBuffer getContentBuffer() {
+        if (this.body == null)
+            return null;
+        return ByteBuffer.wrap(this.body, this.offset, this.length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * A copy of the content bytes, or null if the event has no content.
+     */
+    public byte[] getContentBytes() {
+        if (this.body == null)
+            return null;
+        byte[] bytes = new byte[this.length];
+        System.arraycopy(this.body, this.offset, bytes, 0, this.length);
+        return bytes;
+    }
+
+    /**
+     * Write the content bytes to the specified stream without copying them.
+     * Nothing is written if the event has no content.
+     */
+    public void writeContentTo(OutputStream out) throws IOException {
+        if (this.body != null)
+            out.write(this.body, this.offset, this.length);
+    }
+
+    /**
+     * The content decoded as UTF-8. The content is decoded on the first call
+     * and the result is kept for subsequent calls. Null is returned if the
+     * event has no content or if the content is not valid UTF-8.
+     */
+    public String getContent() {
+        if (this.body == null)
+            return null;
+        String decoded = this.content;
+        if (decoded == null) {
+            decoded = Utilities.utf8BytesToString(this.body, this.offset, this.length);
+            if (decoded == null)
+                decoded = INVALID_UTF8;
+            this.content = decoded;
+        }
+        return decoded == INVALID_UTF8 ? null : decoded;
+    }
+
+    /**
+     * Convert this view into a standalone WebSocketEvent instance that
+     * holds its own copy of the content.
+     */
+    public WebSocketEvent toEvent() {
+        if (this.body == null)
+            return new WebSocketEvent(this.type);
+        return new WebSocketEvent(this.type, getContentBytes());
+    }
+}
@@ -7,15 +7,12 @@
 
 package org.fanout.gripcontrol;
 
-import javax.xml.bind.DatatypeConverter;
-import java.io.UnsupportedEncodingException;
-import org.fanout.pubcontrol.Format;
 import java.util.*;
 
 /**
  * Used to publish data to WebSocket clients connected to GRIP proxies.
  */
-public class WebSocketMessageFormat implements Format {
+public class WebSocketMessageFormat implements GripFormat {
     public String content;
     public byte[] binaryContent;
 
@@ -46,9 +43,21 @@ public class WebSocketMessageFormat implements Format {
     public Object export() {
         Map<String, Object> export = new HashMap<String, Object>();
         if (this.binaryContent != null)
-            export.put("content-bin", DatatypeConverter.printBase64Binary(this.binaryContent));
+            export.put("content-bin", Base64.getEncoder().encodeToString(this.binaryContent));
         else if (this.content != null)
             export.put("content", this.content);
         return export;
     }
+
+    /**
+     * Write the exported message directly as JSON.
+     */
+    public void exportTo(GripJsonWriter writer) {
+        writer.beginObject();
+        if (this.binaryContent != null)
+            writer.name("content-bin").base64Value(this.binaryContent);
+        else if (this.content != null)
+            writer.name("content").value(this.content);
+        writer.endObject();
+    }
 }
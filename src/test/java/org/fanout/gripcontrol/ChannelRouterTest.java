@@ -0,0 +1,91 @@
+package org.fanout.gripcontrol;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ChannelRouterTest {
+    private static List<PublishEndpoint> createEndpoints(int count) {
+        List<PublishEndpoint> endpoints = new ArrayList<PublishEndpoint>();
+        for (int i = 0; i < count; i++) {
+            endpoints.add(new PublishEndpoint("http://pushpin-" + i + ":5561"));
+        }
+        return endpoints;
+    }
+
+    @Test
+    public void testDistribution() {
+        List<PublishEndpoint> endpoints = createEndpoints(3);
+        ChannelRouter router = new ChannelRouter(endpoints, 200, null);
+        Map<PublishEndpoint, Integer> counts = new HashMap<PublishEndpoint, Integer>();
+        for (int i = 0; i < 30000; i++) {
+            PublishEndpoint endpoint = router.route("channel-" + i);
+            counts.put(endpoint, counts.containsKey(endpoint) ? counts.get(endpoint) + 1 : 1);
+        }
+        assertEquals(counts.size(), 3);
+        for (int count : counts.values()) {
+            assertTrue(count > 8000 && count < 12000);
+        }
+    }
+
+    @Test
+    public void testConsistency() {
+        List<PublishEndpoint> endpoints = createEndpoints(4);
+        ChannelRouter before = new ChannelRouter(endpoints.subList(0, 3), 200, null);
+        ChannelRouter after = new ChannelRouter(endpoints, 200, null);
+        int moved = 0;
+        for (int i = 0; i < 10000; i++) {
+            String channel = "channel-" + i;
+            PublishEndpoint owner = after.route(channel);
+            if (owner != before.route(channel)) {
+                assertSame(owner, endpoints.get(3));
+                moved++;
+            }
+        }
+        assertTrue(moved > 1500 && moved < 3500);
+
+        // only the URIs matter, not the instances or their order
+        List<PublishEndpoint> others = createEndpoints(4);
+        Collections.reverse(others);
+        ChannelRouter other = new ChannelRouter(others, 200, null);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(other.route("channel-" + i).getUri(), after.route("channel-" + i).getUri());
+        }
+    }
+
+    @Test
+    public void testPrefixes() {
+        List<PublishEndpoint> endpoints = createEndpoints(2);
+        PublishEndpoint special = new PublishEndpoint("http://special:5561");
+        Map<String, PublishEndpoint> prefixes = new HashMap<String, PublishEndpoint>();
+        prefixes.put("user-", endpoints.get(0));
+        prefixes.put("user-vip-", special);
+        ChannelRouter router = new ChannelRouter(endpoints, 10, prefixes);
+        assertSame(router.route("user-1"), endpoints.get(0));
+        assertSame(router.route("user-vip-1"), special);
+        assertNotNull(router.route("room-1"));
+        assertSame(new ChannelRouter(new ArrayList<PublishEndpoint>(), 10, prefixes).route("user-vip-2"), special);
+        assertNull(new ChannelRouter(new ArrayList<PublishEndpoint>(), 10, prefixes).route("room-1"));
+    }
+
+    @Test
+    public void testHash() {
+        // FNV-1a of "a" is 0xaf63dc4c8601ec8c, then mixed
+        long fnv = 0xaf63dc4c8601ec8cL;
+        fnv ^= fnv >>> 33;
+        fnv *= 0xff51afd7ed558ccdL;
+        fnv ^= fnv >>> 33;
+        fnv *= 0xc4ceb9fe1a85ec53L;
+        fnv ^= fnv >>> 33;
+        assertEquals(ChannelRouter.hash("a"), fnv);
+        assertEquals(ChannelRouter.hash("café😀"), ChannelRouter.hash(new String("café😀")));
+        assertNotEquals(ChannelRouter.hash("café"), ChannelRouter.hash("cafe"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidVirtualNodes() {
+        new ChannelRouter(createEndpoints(1), 0, null);
+    }
+}
@@ -0,0 +1,67 @@
+package org.fanout.gripcontrol;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong();
+    private final LongSupplier clock = new LongSupplier() {
+        public long getAsLong() {
+            return now.get();
+        }
+    };
+
+    private void advance(long millis) {
+        this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    public void testOpenAndClose() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 50, this.clock);
+        assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+        assertFalse(breaker.allowRequest());
+        advance(49);
+        assertFalse(breaker.allowRequest());
+        advance(1);
+        assertTrue(breaker.allowRequest());
+        assertEquals(breaker.getState(), CircuitBreaker.State.HALF_OPEN);
+        assertFalse(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testFailedProbe() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 50, this.clock);
+        breaker.recordFailure();
+        assertFalse(breaker.allowRequest());
+        advance(60);
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+        // the next period starts from the failed probe
+        advance(49);
+        assertFalse(breaker.allowRequest());
+        advance(1);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        new CircuitBreaker(0, 50);
+    }
+}
@@ -0,0 +1,66 @@
+package org.fanout.gripcontrol;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CountingPublishMetricsTest {
+    @Test
+    public void testCounters() {
+        CountingPublishMetrics metrics = new CountingPublishMetrics();
+        PublishEndpoint endpoint = new PublishEndpoint("http://localhost:5561");
+        metrics.serialized(2, 100);
+        metrics.serialized(1, 50);
+        assertEquals(metrics.getSerializedRequests(), 2);
+        assertEquals(metrics.getSerializedItems(), 3);
+        assertEquals(metrics.getSerializedBytes(), 150);
+
+        metrics.queueDepthChanged(endpoint, 1);
+        metrics.queueDepthChanged(endpoint, 1);
+        metrics.queueDepthChanged(endpoint, -1);
+        metrics.requestStarted(endpoint, 2, 100);
+        CountingPublishMetrics.EndpointMetrics endpointMetrics = metrics.getEndpointMetrics(endpoint);
+        assertEquals(endpointMetrics.getQueueDepth(), 1);
+        assertEquals(endpointMetrics.getInFlight(), 1);
+        metrics.requestCompleted(endpoint, TimeUnit.MILLISECONDS.toNanos(3), false);
+        metrics.retried(endpoint);
+        metrics.requestStarted(endpoint, 2, 100);
+        metrics.requestCompleted(endpoint, TimeUnit.MILLISECONDS.toNanos(1), true);
+        metrics.rejected(endpoint);
+        assertEquals(endpointMetrics.getInFlight(), 0);
+        assertEquals(endpointMetrics.getRequests(), 2);
+        assertEquals(endpointMetrics.getSuccesses(), 1);
+        assertEquals(endpointMetrics.getFailures(), 1);
+        assertEquals(endpointMetrics.getRetries(), 1);
+        assertEquals(endpointMetrics.getRejections(), 1);
+        assertEquals(endpointMetrics.getItems(), 4);
+        assertEquals(endpointMetrics.getBytes(), 200);
+        assertEquals(endpointMetrics.getTotalLatencyNanos(), TimeUnit.MILLISECONDS.toNanos(4));
+        assertEquals(metrics.getAllEndpointMetrics().size(), 1);
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+        CountingPublishMetrics metrics = new CountingPublishMetrics();
+        PublishEndpoint endpoint = new PublishEndpoint("http://localhost:5561");
+        CountingPublishMetrics.EndpointMetrics endpointMetrics = metrics.getEndpointMetrics(endpoint);
+        assertEquals(endpointMetrics.getLatencyPercentileNanos(0.5), 0);
+        for (int i = 0; i < 9; i++) {
+            metrics.requestCompleted(endpoint, TimeUnit.MICROSECONDS.toNanos(100), true);
+        }
+        metrics.requestCompleted(endpoint, TimeUnit.MILLISECONDS.toNanos(10), true);
+        long[] histogram = endpointMetrics.getLatencyHistogram();
+        // 100 us falls below 128 us, 10 ms below 16384 us
+        assertEquals(histogram[7], 9);
+        assertEquals(histogram[14], 1);
+        assertEquals(endpointMetrics.getLatencyPercentileNanos(0.5), TimeUnit.MICROSECONDS.toNanos(128));
+        assertEquals(endpointMetrics.getLatencyPercentileNanos(0.9), TimeUnit.MICROSECONDS.toNanos(128));
+        assertEquals(endpointMetrics.getLatencyPercentileNanos(0.99), TimeUnit.MICROSECONDS.toNanos(16384));
+
+        metrics.requestCompleted(endpoint, TimeUnit.HOURS.toNanos(2), true);
+        assertEquals(endpointMetrics.getLatencyHistogram()[31], 1);
+        assertEquals(endpointMetrics.getLatencyPercentileNanos(1), Long.MAX_VALUE);
+    }
+}
@@ -2,6 +2,8 @@ package org.fanout.gripcontrol;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
 import org.junit.Test;
 
 import java.io.UnsupportedEncodingException;
@@ -102,6 +104,10 @@ public class GripControlTest {
         args.put("arg2", "value2");
         message = GripControl.webSocketControlMessage("type", args);
         assertEquals(message, "{\"arg2\":\"value2\",\"arg1\":\"value1\",\"type\":\"type\"}");
+        // a null type is omitted, like null arguments
+        assertEquals(GripControl.webSocketControlMessage(null), "{}");
+        message = GripControl.webSocketControlMessage(null, args);
+        assertEquals(message, "{\"arg2\":\"value2\",\"arg1\":\"value1\"}");
     }
 
     @Test
@@ -129,6 +135,25 @@ public class GripControlTest {
         assertEquals(parsedUri.get("control_uri"), "https://test.com:8900/path?arg1=val1&arg2=val2");
         assertEquals(parsedUri.get("control_iss"), "claim");
         assertEquals(parsedUri.get("key"), "hello");
+        // a trailing partial base64 group is dropped rather than rejected
+        url = "https://test.com/path?key=base64:abcde";
+        parsedUri = GripControl.parseGripUri(url);
+        assertEquals(parsedUri.get("control_uri"), "https://test.com/path");
+        assertEquals(parsedUri.get("key"),
+                new String(javax.xml.bind.DatatypeConverter.parseBase64Binary("abcde")));
+    }
+
+    @Test
+    public void testValidateSigUnpaddedKey() {
+        // "secret" isn't valid base64; keys like it decode to the 3 bytes
+        // DatatypeConverter gives them, which tokens were signed with
+        byte[] rawKey = javax.xml.bind.DatatypeConverter.parseBase64Binary("secret");
+        assertEquals(rawKey.length, 3);
+        String token = Jwts.builder().setIssuer("pushpin")
+                .setExpiration(new Date(System.currentTimeMillis() + 3600000))
+                .signWith(SignatureAlgorithm.HS256, rawKey).compact();
+        assertTrue(GripControl.validateSig(token, "secret"));
+        assertTrue(new GripSigValidator("secret").isValid(token));
     }
 
     @Test
@@ -300,4 +325,69 @@ public class GripControlTest {
     public void testDecodeWebSocketEventsException2() throws IllegalArgumentException {
         GripControl.decodeWebSocketEvents("OPEN\r\nTEXT");
     }
+
+    @Test
+    public void testMetrics() {
+        final List<String> reports = new ArrayList<String>();
+        GripControl.setMetrics(new GripControlMetrics() {
+            public void signatureValidated(long nanos, GripSigValidator.Result result) {
+                reports.add("sig " + result);
+            }
+
+            public void eventsDecoded(int bytes, int events, long nanos) {
+                reports.add("decoded " + bytes + " " + events);
+            }
+
+            public void eventDecoded(String type) {
+                reports.add("event " + type);
+            }
+
+            public void decodeFailed(int bytes, RuntimeException error) {
+                reports.add("failed " + bytes + " " + error.getMessage());
+            }
+
+            public void eventsEncoded(int events, int bytes, long nanos) {
+                reports.add("encoded " + events + " " + bytes);
+            }
+
+            public void holdCreated(String mode, int channels, long nanos) {
+                reports.add("hold " + mode + " " + channels);
+            }
+        });
+        try {
+            String token = "eyJ0eXAiOiJKV1QiLCJhbGciOiJIUzI1NiJ9.eyJpc3MiOlsiT25saW5lIEpXVCBCdWlsZGVyIiwidGVzdGlzcy" +
+                    "JdLCJpYXQiOjk3MzI5NTg4NSwiZXhwIjoyNTUxMDQ2Mjg1LCJhdWQiOiJ3d3cuZXhhbXBsZS5jb20iLCJzdWIiOiJq" +
+                    "cm9ja2V0QGV4YW1wbGUuY29tIn0.Wmm-ulXbOun3egbdqmxjCqegyYu8Tr5MAaguie4rmTE";
+            assertTrue(GripControl.validateSig(token, "a2V5"));
+            assertFalse(GripControl.validateSig(token, "d3JvbmdrZXk="));
+            assertFalse(GripControl.validateSig("bad", "a2V5"));
+            String expired = "eyJ0eXAiOiJKV1QiLCJhbGciOiJIUzI1NiJ9.eyJpc3MiOlsiT25saW5lIEpXVCBCdWlsZGVyIiwi" +
+                    "dGVzdGlzcyJdLCJpYXQiOjk3MzI5NTg4NSwiZXhwIjoxMDA0NzQ1NDg1LCJhdWQiOiJ3d3cuZXhhbXBsZS5jb20iLC" +
+                    "JzdWIiOiJqcm9ja2V0QGV4YW1wbGUuY29tIn0.W8e4mxvbMKuotkINOyZX5jDO7KFD-jpgPHbWNGV5CHQ";
+            assertFalse(GripControl.validateSig(expired, "a2V5"));
+
+            GripControl.decodeWebSocketEvents("OPEN\r\nTEXT 5\r\nHello\r\n");
+            try {
+                GripControl.decodeWebSocketEvents("TEXT 5");
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            List<WebSocketEvent> events = Arrays.asList(new WebSocketEvent("TEXT", "Hello"));
+            GripControl.encodeWebSocketEvents(events);
+            GripControl.encodeWebSocketEventsBinary(events);
+            GripControl.createHoldStream(Arrays.asList(new Channel("chan1"), new Channel("chan2")));
+
+            assertEquals(reports, Arrays.asList("sig VALID", "sig INVALID_SIGNATURE", "sig MALFORMED",
+                    "sig EXPIRED", "event OPEN", "event TEXT", "decoded 21 2", "failed 6 bad format",
+                    "encoded 1 15", "encoded 1 15", "hold stream 2"));
+
+            GripControl.setMetrics(null);
+            assertNull(GripControl.getMetrics());
+            GripControl.createHoldStream(Arrays.asList(new Channel("chan1")));
+            assertEquals(reports.size(), 11);
+        } finally {
+            GripControl.setMetrics(null);
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package org.fanout.gripcontrol;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GripJsonWriterTest {
+    @Test
+    public void testEscapingMatchesGson() {
+        String[] strings = {
+            "plain", "", "quote\" backslash\\ slash/", "\t\b\n\r\f\u0000\u001f",
+            "<html> & 'x'=1", "line para ", "😀 ñ דגל"
+        };
+        Gson gson = new Gson();
+        for (String value : strings) {
+            StringBuilder out = new StringBuilder();
+            GripJsonWriter.quote(out, value);
+            assertEquals(gson.toJson(value), out.toString());
+        }
+    }
+
+    @Test
+    public void testWriteValues() {
+        GripJsonWriter writer = new GripJsonWriter();
+        writer.beginObject();
+        writer.name("a").value("b");
+        writer.name("n").value(5);
+        writer.name("t").value(true);
+        writer.name("z").nullValue();
+        writer.name("arr").beginArray().value(1).value("x").beginObject().endObject().endArray();
+        writer.name("raw").rawValue("{\"k\":1}");
+        writer.endObject();
+        assertEquals(writer.toString(),
+                "{\"a\":\"b\",\"n\":5,\"t\":true,\"z\":null,\"arr\":[1,\"x\",{}],\"raw\":{\"k\":1}}");
+        writer.reset();
+        writer.beginArray().endArray();
+        assertEquals(writer.toString(), "[]");
+    }
+
+    @Test
+    public void testWriteObjectMatchesGson() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("string", "value");
+        map.put("int", 5);
+        map.put("double", 1.5);
+        map.put("bool", false);
+        map.put("null", null);
+        map.put("list", Arrays.asList("a", 2, null));
+        map.put("array", new Object[] {"b"});
+        Map<String, String> nested = new LinkedHashMap<String, String>();
+        nested.put("k", "v");
+        map.put("map", nested);
+        GripJsonWriter writer = new GripJsonWriter();
+        writer.value((Object)map);
+        assertEquals(writer.toString(), new Gson().toJson(map));
+    }
+
+    @Test
+    public void testBase64ValueMatchesGson() {
+        Gson gson = new Gson();
+        Random random = new Random(1);
+        for (int length : new int[] {0, 1, 2, 3, 4, 5, 57, 8192, 100000}) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            GripJsonWriter writer = new GripJsonWriter();
+            writer.beginArray().base64Value(bytes).base64Value(null).endArray();
+            assertEquals(writer.toString(),
+                    "[" + gson.toJson(Base64.getEncoder().encodeToString(bytes)) + ",null]");
+        }
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testNameOutsideObject() {
+        new GripJsonWriter().name("a");
+    }
+
+    @Test
+    public void testFormatsMatchExport() throws UnsupportedEncodingException {
+        JsonParser parser = new JsonParser();
+        Gson gson = new Gson();
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "text/plain");
+        byte[] binary = {(byte) Integer.parseInt("10001111", 2), (byte) Integer.parseInt("10111111", 2)};
+        GripFormat[] formats = {
+            new HttpResponseFormat("body"),
+            new HttpResponseFormat("body", headers, "200", "OK"),
+            new HttpResponseFormat(binary),
+            new HttpStreamFormat("content"),
+            new HttpStreamFormat(binary),
+            new HttpStreamFormat(HttpStreamAction.CLOSE),
+            new WebSocketMessageFormat("content"),
+            new WebSocketMessageFormat(binary)
+        };
+        for (GripFormat format : formats) {
+            GripJsonWriter writer = new GripJsonWriter();
+            format.exportTo(writer);
+            assertEquals(parser.parse(writer.toString()), parser.parse(gson.toJson(format.export())));
+        }
+    }
+}
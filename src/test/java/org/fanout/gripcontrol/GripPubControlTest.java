@@ -0,0 +1,831 @@
+package org.fanout.gripcontrol;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.fanout.pubcontrol.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class GripPubControlTest {
+    private static class Endpoint implements HttpHandler {
+        final HttpServer server;
+        final List<String> paths = new CopyOnWriteArrayList<String>();
+        final List<String> authHeaders = new CopyOnWriteArrayList<String>();
+        final List<byte[]> bodies = new CopyOnWriteArrayList<byte[]>();
+        volatile int status = 200;
+        final AtomicInteger failures = new AtomicInteger();
+        volatile CountDownLatch gate = new CountDownLatch(0);
+
+        Endpoint() throws IOException {
+            this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            this.server.createContext("/", this);
+            this.server.start();
+        }
+
+        String uri() {
+            return "http://127.0.0.1:" + this.server.getAddress().getPort();
+        }
+
+        public void handle(HttpExchange exchange) throws IOException {
+            this.paths.add(exchange.getRequestURI().getPath());
+            this.authHeaders.add(String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+            InputStream in = exchange.getRequestBody();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                body.write(buffer, 0, count);
+            }
+            this.bodies.add(body.toByteArray());
+            try {
+                this.gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            int status = this.failures.getAndDecrement() > 0 ? 503 : this.status;
+            byte[] response = (status == 200 ? "Published" : "Failed").getBytes();
+            exchange.sendResponseHeaders(status, response.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(response);
+            out.close();
+        }
+    }
+
+    private Endpoint first;
+    private Endpoint second;
+
+    @Before
+    public void startEndpoints() throws IOException {
+        this.first = new Endpoint();
+        this.second = new Endpoint();
+    }
+
+    @After
+    public void stopEndpoints() {
+        this.first.gate.countDown();
+        this.first.server.stop(0);
+        this.second.server.stop(0);
+    }
+
+    private GripPubControl createPubControl() {
+        List<Map<String, Object>> config = new ArrayList<Map<String, Object>>();
+        Map<String, Object> entry = new HashMap<String, Object>();
+        entry.put("control_uri", this.first.uri());
+        entry.put("key", "token");
+        config.add(entry);
+        entry = new HashMap<String, Object>();
+        entry.put("control_uri", this.second.uri());
+        entry.put("control_iss", "issuer");
+        entry.put("key", "secret");
+        config.add(entry);
+        return new GripPubControl(config);
+    }
+
+    @Test
+    public void testPublishSerializesOnce() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        assertEquals(pubControl.getEndpoints().size(), 2);
+        pubControl.publishHttpResponse(Arrays.asList("a", "b"), "body", "id", null);
+        assertEquals(this.first.paths, Arrays.asList("/publish/"));
+        assertEquals(this.second.paths, Arrays.asList("/publish/"));
+        assertArrayEquals(this.first.bodies.get(0), this.second.bodies.get(0));
+        assertEquals(new JsonParser().parse(new String(this.first.bodies.get(0), "UTF-8")),
+                new JsonParser().parse("{\"items\":[" +
+                        "{\"http-response\":{\"body\":\"body\"},\"id\":\"id\",\"channel\":\"a\"}," +
+                        "{\"http-response\":{\"body\":\"body\"},\"id\":\"id\",\"channel\":\"b\"}]}"));
+        assertEquals(this.first.authHeaders.get(0), "Bearer token");
+        String authHeader = this.second.authHeaders.get(0);
+        assertTrue(authHeader.startsWith("Bearer "));
+        assertTrue(new GripSigValidator("secret".getBytes()).isValid(authHeader.substring(7)));
+    }
+
+    @Test
+    public void testPublishItemMatchesGson() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        List<Format> formats = new ArrayList<Format>();
+        formats.add(new HttpStreamFormat(new byte[] {(byte) 0xff, 1}));
+        formats.add(new WebSocketMessageFormat("message"));
+        Item item = new Item(formats, "id", "prev-id");
+        pubControl.publish(Arrays.asList("c"), item);
+        Map<String, Object> expected = new HashMap<String, Object>(item.export());
+        expected.put("channel", "c");
+        Map<String, Object> request = new HashMap<String, Object>();
+        request.put("items", Arrays.asList(expected));
+        assertEquals(new JsonParser().parse(new String(this.second.bodies.get(0), "UTF-8")),
+                new JsonParser().parse(new Gson().toJson(request)));
+    }
+
+    @Test
+    public void testPublishManyChannels() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        List<String> channels = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            channels.add("user-" + i + (i % 7 == 0 ? "\"<ñ>" : ""));
+        }
+        HttpResponseFormat format = new HttpResponseFormat("body");
+        pubControl.publishHttpResponse(channels, format, null, "prev");
+        List<Map<String, Object>> items = new ArrayList<Map<String, Object>>();
+        Map<String, Object> formatExport = new HashMap<String, Object>();
+        formatExport.put("body", "body");
+        for (String channel : channels) {
+            Map<String, Object> item = new HashMap<String, Object>();
+            item.put("http-response", formatExport);
+            item.put("prev-id", "prev");
+            item.put("channel", channel);
+            items.add(item);
+        }
+        Map<String, Object> request = new HashMap<String, Object>();
+        request.put("items", items);
+        assertEquals(new JsonParser().parse(new String(this.first.bodies.get(0), "UTF-8")),
+                new JsonParser().parse(new Gson().toJson(request)));
+        pubControl.publishHttpResponse(new ArrayList<String>(), format);
+        assertEquals(new String(this.first.bodies.get(1), "UTF-8"), "{\"items\":[]}");
+    }
+
+    @Test
+    public void testPublishAsync() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final boolean[] result = new boolean[1];
+        pubControl.publishHttpStreamAsync(Arrays.asList("a"), "content", new PublishCallback() {
+            public void completed(boolean success, String message) {
+                result[0] = success;
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(result[0]);
+        assertEquals(this.first.bodies.size(), 1);
+        assertEquals(this.second.bodies.size(), 1);
+        pubControl.publishHttpStreamAsync(Arrays.asList("a"), "content", null);
+        pubControl.finish();
+        assertEquals(this.first.bodies.size(), 2);
+    }
+
+    @Test
+    public void testPublishFailure() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        this.second.status = 500;
+        try {
+            pubControl.publishHttpResponse(Arrays.asList("a"), "body");
+            fail();
+        } catch (PublishFailedException e) {
+            assertEquals(e.getMessage(), "failed to publish: 500 Failed");
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Object[] result = new Object[2];
+        pubControl.publishHttpResponseAsync(Arrays.asList("a"), "body", new PublishCallback() {
+            public void completed(boolean success, String message) {
+                result[0] = success;
+                result[1] = message;
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(result[0], false);
+        assertEquals(result[1], "failed to publish: 500 Failed");
+    }
+
+    private static List<String> publishedContent(Endpoint endpoint) throws Exception {
+        List<String> content = new ArrayList<String>();
+        for (byte[] body : endpoint.bodies) {
+            for (JsonElement item : new JsonParser().parse(new String(body, "UTF-8"))
+                    .getAsJsonObject().getAsJsonArray("items")) {
+                content.add(item.getAsJsonObject().getAsJsonObject("http-stream")
+                        .get("content").getAsString() + "@" + item.getAsJsonObject().get("channel").getAsString());
+            }
+        }
+        return content;
+    }
+
+    private static CountDownLatch publishMany(GripPubControl pubControl, int count, final List<Boolean> results)
+            throws Exception {
+        final CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            pubControl.publishHttpStreamAsync(Arrays.asList("a"), "m" + i, new PublishCallback() {
+                public void completed(boolean success, String message) {
+                    results.add(success);
+                    latch.countDown();
+                }
+            });
+        }
+        return latch;
+    }
+
+    @Test
+    public void testBatching() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        pubControl.setBatching(10, 60000, 1 << 20);
+        List<Boolean> results = new CopyOnWriteArrayList<Boolean>();
+        CountDownLatch latch = publishMany(pubControl, 25, results);
+        pubControl.finish();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(results.size(), 25);
+        assertFalse(results.contains(false));
+        assertEquals(this.first.bodies.size(), 3);
+        assertEquals(this.second.bodies.size(), 3);
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 25; i++) {
+            expected.add("m" + i + "@a");
+        }
+        assertEquals(publishedContent(this.first), expected);
+        assertEquals(publishedContent(this.second), expected);
+    }
+
+    @Test
+    public void testBatchingLingerAndBytes() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        pubControl.setBatching(1000, 50, 1 << 20);
+        List<Boolean> results = new CopyOnWriteArrayList<Boolean>();
+        assertTrue(publishMany(pubControl, 5, results).await(10, TimeUnit.SECONDS));
+        assertEquals(this.first.bodies.size(), 1);
+        assertEquals(publishedContent(this.first).size(), 5);
+        pubControl.setBatching(1000, 60000, 200);
+        CountDownLatch latch = publishMany(pubControl, 20, results);
+        pubControl.finish();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(publishedContent(this.first).size(), 25);
+        assertTrue(this.first.bodies.size() > 2);
+        for (byte[] body : this.first.bodies.subList(1, this.first.bodies.size())) {
+            assertTrue(body.length <= 200);
+        }
+    }
+
+    @Test
+    public void testBatchingFailure() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        pubControl.setBatching(100, 60000, 1 << 20);
+        this.first.status = 500;
+        List<Boolean> results = new CopyOnWriteArrayList<Boolean>();
+        CountDownLatch latch = publishMany(pubControl, 5, results);
+        pubControl.finish();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(results, Arrays.asList(false, false, false, false, false));
+        assertEquals(this.first.bodies.size(), 1);
+    }
+
+    @Test
+    public void testPublishWithoutEndpoints() throws Exception {
+        GripPubControl pubControl = new GripPubControl();
+        pubControl.publishHttpResponse(Arrays.asList("a"), "body");
+        final boolean[] called = new boolean[1];
+        pubControl.publishHttpResponseAsync(Arrays.asList("a"), "body", new PublishCallback() {
+            public void completed(boolean success, String message) {
+                called[0] = success;
+            }
+        });
+        assertTrue(called[0]);
+        try {
+            new PublishEndpoint(null).publish(new byte[0]);
+            fail();
+        } catch (PublishFailedException e) {
+            assertEquals(e.getMessage(), "failed to publish: bad uri");
+        }
+    }
+
+    // publishes one message and waits for it to be in flight, held up by
+    // the first endpoint's gate
+    private GripPubControl createBlockedPubControl(int maxQueued, OverflowPolicy policy,
+            List<String> results) throws Exception {
+        this.first.gate = new CountDownLatch(1);
+        GripPubControl pubControl = new GripPubControl();
+        pubControl.addEndpoint(new PublishEndpoint(this.first.uri()));
+        pubControl.setQueueLimit(maxQueued, policy);
+        publish(pubControl, "m0", results);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (this.first.bodies.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(pubControl.getQueueDepth(), 0);
+        return pubControl;
+    }
+
+    private static void publish(GripPubControl pubControl, final String content, final List<String> results) {
+        try {
+            pubControl.publishHttpStreamAsync(Arrays.asList("a"), content, new PublishCallback() {
+                public void completed(boolean success, String message) {
+                    results.add(content + ":" + (success ? "ok" : message));
+                }
+            });
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void testQueueLimitFail() throws Exception {
+        List<String> results = new CopyOnWriteArrayList<String>();
+        GripPubControl pubControl = createBlockedPubControl(2, OverflowPolicy.FAIL, results);
+        publish(pubControl, "m1", results);
+        publish(pubControl, "m2", results);
+        publish(pubControl, "m3", results);
+        assertEquals(pubControl.getQueueDepth(), 2);
+        assertEquals(results, Arrays.asList("m3:failed to publish: queue full"));
+        this.first.gate.countDown();
+        assertTrue(pubControl.flush(10, TimeUnit.SECONDS));
+        assertEquals(pubControl.getQueueDepth(), 0);
+        assertEquals(publishedContent(this.first), Arrays.asList("m0@a", "m1@a", "m2@a"));
+        assertEquals(results.size(), 4);
+    }
+
+    @Test
+    public void testQueueLimitDrop() throws Exception {
+        List<String> results = new CopyOnWriteArrayList<String>();
+        GripPubControl pubControl = createBlockedPubControl(2, OverflowPolicy.DROP_OLDEST, results);
+        publish(pubControl, "m1", results);
+        publish(pubControl, "m2", results);
+        publish(pubControl, "m3", results);
+        publish(pubControl, "m4", results);
+        assertEquals(pubControl.getQueueDepth(), 2);
+        assertEquals(results, Arrays.asList("m1:failed to publish: dropped", "m2:failed to publish: dropped"));
+        pubControl.setQueueLimit(2, OverflowPolicy.DROP_NEWEST);
+        publish(pubControl, "m5", results);
+        assertEquals(results.get(2), "m5:failed to publish: dropped");
+        this.first.gate.countDown();
+        assertTrue(pubControl.flush(10, TimeUnit.SECONDS));
+        assertEquals(publishedContent(this.first), Arrays.asList("m0@a", "m3@a", "m4@a"));
+    }
+
+    @Test
+    public void testQueueLimitBlock() throws Exception {
+        List<String> results = new CopyOnWriteArrayList<String>();
+        final GripPubControl pubControl = createBlockedPubControl(1, OverflowPolicy.BLOCK, results);
+        publish(pubControl, "m1", results);
+        final CountDownLatch queued = new CountDownLatch(1);
+        final List<String> blockedResults = results;
+        Thread publisher = new Thread(new Runnable() {
+            public void run() {
+                publish(pubControl, "m2", blockedResults);
+                queued.countDown();
+            }
+        });
+        publisher.start();
+        assertFalse(queued.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(pubControl.getQueueDepth(), 1);
+        this.first.gate.countDown();
+        assertTrue(queued.await(10, TimeUnit.SECONDS));
+        assertTrue(pubControl.flush(10, TimeUnit.SECONDS));
+        assertEquals(publishedContent(this.first), Arrays.asList("m0@a", "m1@a", "m2@a"));
+        assertEquals(results, Arrays.asList("m0:ok", "m1:ok", "m2:ok"));
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        List<String> results = new CopyOnWriteArrayList<String>();
+        GripPubControl pubControl = createBlockedPubControl(10, OverflowPolicy.BLOCK, results);
+        publish(pubControl, "m1", results);
+        publish(pubControl, "m2", results);
+        assertFalse(pubControl.flush(50, TimeUnit.MILLISECONDS));
+        assertFalse(pubControl.close(50, TimeUnit.MILLISECONDS));
+        assertEquals(pubControl.getQueueDepth(), 0);
+        publish(pubControl, "m3", results);
+        assertEquals(results, Arrays.asList("m1:failed to publish: closed", "m2:failed to publish: closed",
+                "m3:failed to publish: closed"));
+        this.first.gate.countDown();
+        pubControl.finish();
+        assertEquals(results.get(3), "m0:ok");
+        assertEquals(publishedContent(this.first), Arrays.asList("m0@a"));
+
+        pubControl = createPubControl();
+        pubControl.setBatching(100, 60000, 1 << 20);
+        results.clear();
+        publish(pubControl, "m0", results);
+        publish(pubControl, "m1", results);
+        assertTrue(pubControl.close(10, TimeUnit.SECONDS));
+        assertEquals(results, Arrays.asList("m0:ok", "m1:ok"));
+        assertEquals(this.first.bodies.size(), 2);
+        assertEquals(this.second.bodies.size(), 1);
+    }
+
+    @Test
+    public void testPublishFuture() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        CompletableFuture<Void> future = pubControl.publishHttpResponseAsync(Arrays.asList("a"), "body");
+        assertNull(future.get(10, TimeUnit.SECONDS));
+        assertEquals(this.first.bodies.size(), 1);
+        assertEquals(this.second.bodies.size(), 1);
+        this.second.status = 500;
+        future = pubControl.publishHttpStreamAsync(Arrays.asList("a"), new HttpStreamFormat("content"), "id", null);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof PublishFailedException);
+            assertEquals(e.getCause().getMessage(), "failed to publish: 500 Failed");
+        }
+        assertTrue(new GripPubControl().publishHttpStreamAsync(Arrays.asList("a"), "content").isDone());
+    }
+
+    @Test
+    public void testPublishFutureExecutor() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "completion");
+            }
+        });
+        try {
+            pubControl.setCompletionExecutor(executor);
+            String thread = pubControl.publishHttpStreamAsync(Arrays.asList("a"), "content")
+                    .thenApply(new java.util.function.Function<Void, String>() {
+                        public String apply(Void result) {
+                            return Thread.currentThread().getName();
+                        }
+                    }).get(10, TimeUnit.SECONDS);
+            assertEquals(thread, "completion");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPublishFutureCancel() throws Exception {
+        List<String> results = new CopyOnWriteArrayList<String>();
+        GripPubControl pubControl = createBlockedPubControl(10, OverflowPolicy.BLOCK, results);
+        CompletableFuture<Void> future = pubControl.publishHttpStreamAsync(Arrays.asList("a"), "m1");
+        pubControl.publishHttpStreamAsync(Arrays.asList("a"), "m2");
+        assertEquals(pubControl.getQueueDepth(), 2);
+        assertTrue(future.cancel(true));
+        assertEquals(pubControl.getQueueDepth(), 1);
+        future = pubControl.publishAsync(Arrays.asList("a"),
+                new Item(Collections.<Format>singletonList(new HttpStreamFormat("m3")), null, null),
+                50, TimeUnit.MILLISECONDS);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(pubControl.getQueueDepth(), 1);
+        this.first.gate.countDown();
+        assertTrue(pubControl.flush(10, TimeUnit.SECONDS));
+        assertEquals(publishedContent(this.first), Arrays.asList("m0@a", "m2@a"));
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        assertEquals(pubControl.setVirtualThreads(true), Threads.isVirtualSupported());
+        pubControl.publishHttpStreamAsync(Arrays.asList("a"), "content").get(10, TimeUnit.SECONDS);
+        pubControl.addEndpoint(new PublishEndpoint(this.first.uri()));
+        pubControl.publishHttpStreamAsync(Arrays.asList("a"), "content").get(10, TimeUnit.SECONDS);
+        assertEquals(this.first.bodies.size(), 3);
+        assertEquals(this.second.bodies.size(), 2);
+        pubControl.finish();
+    }
+
+    @Test
+    public void testTransport() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        PooledHttpTransport transport = new PooledHttpTransport(4, 5000, 5000);
+        try {
+            pubControl.setTransport(transport);
+            pubControl.addEndpoint(new PublishEndpoint(this.first.uri()));
+            for (PublishEndpoint endpoint : pubControl.getEndpoints()) {
+                assertSame(endpoint.getTransport(), transport);
+            }
+            pubControl.publishHttpResponse(Arrays.asList("a"), "body");
+            pubControl.publishHttpResponse(Arrays.asList("a"), "body");
+            assertEquals(this.first.bodies.size(), 4);
+            assertEquals(this.second.bodies.size(), 2);
+            assertEquals(this.second.authHeaders.get(0), this.second.authHeaders.get(1));
+            // the two endpoints on the first server are published to in
+            // parallel
+            assertTrue(transport.getOpenConnections() >= 2 && transport.getOpenConnections() <= 3);
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testSharding() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        pubControl.setSharding(100);
+        ChannelRouter router = pubControl.getRouter();
+        List<String> channels = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            channels.add("c" + i);
+        }
+        pubControl.publishHttpStream(channels, "content");
+        Set<String> firstChannels = new HashSet<String>();
+        for (String content : publishedContent(this.first)) {
+            firstChannels.add(content.substring(content.indexOf('@') + 1));
+        }
+        Set<String> secondChannels = new HashSet<String>();
+        for (String content : publishedContent(this.second)) {
+            secondChannels.add(content.substring(content.indexOf('@') + 1));
+        }
+        assertEquals(firstChannels.size() + secondChannels.size(), 20);
+        assertFalse(firstChannels.isEmpty());
+        assertFalse(secondChannels.isEmpty());
+        for (String channel : firstChannels) {
+            assertEquals(router.route(channel).getUri(), this.first.uri());
+        }
+
+        PublishEndpoint second = pubControl.getEndpoints().get(1);
+        pubControl.setChannelPrefix("vip-", second);
+        pubControl.publishHttpStreamAsync(Arrays.asList("vip-1", "vip-2"), "content").get(10, TimeUnit.SECONDS);
+        assertEquals(this.first.bodies.size(), 1);
+        assertEquals(this.second.bodies.size(), 2);
+        pubControl.publishHttpStream(new ArrayList<String>(), "content");
+        assertEquals(this.first.bodies.size() + this.second.bodies.size(), 3);
+
+        pubControl.setSharding(0);
+        assertNull(pubControl.getRouter());
+        pubControl.publishHttpStream(Arrays.asList("vip-1"), "content");
+        assertEquals(this.first.bodies.size(), 2);
+        assertEquals(this.second.bodies.size(), 3);
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        pubControl.setRetryPolicy(new RetryPolicy(3, 1, 10, 0.1));
+        this.first.failures.set(2);
+        pubControl.publishHttpStream(Arrays.asList("a"), "content");
+        assertEquals(this.first.bodies.size(), 3);
+        assertEquals(this.second.bodies.size(), 1);
+
+        this.first.failures.set(3);
+        try {
+            pubControl.publishHttpStream(Arrays.asList("a"), "content");
+            fail();
+        } catch (PublishFailedException e) {
+            assertEquals(e.getMessage(), "failed to publish: 503 Failed");
+        }
+        assertEquals(this.first.bodies.size(), 6);
+        assertEquals(this.second.bodies.size(), 2);
+
+        // client errors are not retried
+        this.first.failures.set(0);
+        this.first.status = 400;
+        try {
+            pubControl.publishHttpStream(Arrays.asList("a"), "content");
+            fail();
+        } catch (PublishFailedException e) {
+            assertEquals(e.getMessage(), "failed to publish: 400 Failed");
+        }
+        assertEquals(this.first.bodies.size(), 7);
+    }
+
+    @Test
+    public void testRetryBudget() throws Exception {
+        GripPubControl pubControl = new GripPubControl();
+        pubControl.addEndpoint(new PublishEndpoint(this.first.uri()));
+        pubControl.setRetryPolicy(new RetryPolicy(100, 0, 0, 0));
+        this.first.status = 500;
+        try {
+            pubControl.publishHttpStream(Arrays.asList("a"), "content");
+            fail();
+        } catch (PublishFailedException e) {
+            assertEquals(e.getMessage(), "failed to publish: 500 Failed");
+        }
+        // the initial reserve of ten retries
+        assertEquals(this.first.bodies.size(), 11);
+        try {
+            pubControl.publishHttpStream(Arrays.asList("a"), "content");
+            fail();
+        } catch (PublishFailedException e) {
+            assertEquals(this.first.bodies.size(), 12);
+        }
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        // long enough that the circuit can't close again during the test
+        pubControl.setCircuitBreaker(2, 60000);
+        this.first.status = 500;
+        for (int i = 0; i < 4; i++) {
+            try {
+                pubControl.publishHttpStream(Arrays.asList("a"), "content");
+                fail();
+            } catch (PublishFailedException e) {
+                assertEquals(e.getMessage(), i < 2 ? "failed to publish: 500 Failed" : "failed to publish: circuit open");
+            }
+        }
+        assertEquals(this.first.bodies.size(), 2);
+        assertEquals(this.second.bodies.size(), 4);
+        PublishEndpoint first = pubControl.getEndpoints().get(0);
+        assertEquals(first.getCircuitBreaker().getState(), CircuitBreaker.State.OPEN);
+        assertEquals(pubControl.getEndpoints().get(1).getCircuitBreaker().getState(), CircuitBreaker.State.CLOSED);
+
+        // with no open time the next request probes at once and closes it
+        pubControl.setCircuitBreaker(1, 0);
+        try {
+            pubControl.publishHttpStream(Arrays.asList("a"), "content");
+            fail();
+        } catch (PublishFailedException e) {
+            assertEquals(e.getMessage(), "failed to publish: 500 Failed");
+        }
+        assertEquals(first.getCircuitBreaker().getState(), CircuitBreaker.State.OPEN);
+        this.first.status = 200;
+        pubControl.publishHttpStream(Arrays.asList("a"), "content");
+        assertEquals(first.getCircuitBreaker().getState(), CircuitBreaker.State.CLOSED);
+        assertEquals(this.first.bodies.size(), 4);
+    }
+
+    @Test
+    public void testCircuitBreakerUnexpectedError() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        PublishEndpoint endpoint = new PublishEndpoint(this.first.uri());
+        endpoint.setTransport(new PublishTransport() {
+            public Response publish(java.net.URL url, String authHeader, byte[] body) throws IOException {
+                switch (calls.incrementAndGet()) {
+                    case 1:
+                        throw new IOException("refused");
+                    case 2:
+                        throw new IllegalStateException("broken");
+                    default:
+                        return new Response(200, "Published");
+                }
+            }
+
+            public void close() {
+            }
+        });
+        endpoint.setCircuitBreaker(1, 0);
+        try {
+            endpoint.publish(new byte[0]);
+            fail();
+        } catch (PublishFailedException e) {
+            assertEquals(e.getMessage(), "failed to publish: refused");
+        }
+        // the probe fails with an unexpected error, which reopens the circuit
+        try {
+            endpoint.publish(new byte[0]);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "broken");
+        }
+        assertEquals(endpoint.getCircuitBreaker().getState(), CircuitBreaker.State.OPEN);
+        endpoint.publish(new byte[0]);
+        assertEquals(endpoint.getCircuitBreaker().getState(), CircuitBreaker.State.CLOSED);
+        assertEquals(calls.get(), 3);
+    }
+
+    @Test
+    public void testCircuitOpenedByRetries() throws Exception {
+        PublishEndpoint endpoint = new PublishEndpoint(this.first.uri());
+        endpoint.setRetryPolicy(new RetryPolicy(5, 0, 0, 1));
+        endpoint.setCircuitBreaker(2, 60000);
+        this.first.status = 500;
+        try {
+            endpoint.publish(new byte[0]);
+            fail();
+        } catch (PublishFailedException e) {
+            // the failure that opened the circuit, not "circuit open"
+            assertEquals(e.getMessage(), "failed to publish: 500 Failed");
+        }
+        assertEquals(this.first.bodies.size(), 2);
+        try {
+            endpoint.publish(new byte[0]);
+            fail();
+        } catch (PublishFailedException e) {
+            assertEquals(e.getMessage(), "failed to publish: circuit open");
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        CountingPublishMetrics metrics = new CountingPublishMetrics();
+        pubControl.setMetrics(metrics);
+        pubControl.setRetryPolicy(new RetryPolicy(3, 1, 10, 0.1));
+        this.first.failures.set(1);
+        pubControl.publishHttpStream(Arrays.asList("a", "b"), "content");
+        assertEquals(metrics.getSerializedRequests(), 1);
+        assertEquals(metrics.getSerializedItems(), 2);
+        assertEquals(metrics.getSerializedBytes(), this.second.bodies.get(0).length);
+        CountingPublishMetrics.EndpointMetrics first = metrics.getEndpointMetrics(pubControl.getEndpoints().get(0));
+        CountingPublishMetrics.EndpointMetrics second = metrics.getEndpointMetrics(pubControl.getEndpoints().get(1));
+        assertEquals(first.getRequests(), 2);
+        assertEquals(first.getFailures(), 1);
+        assertEquals(first.getSuccesses(), 1);
+        assertEquals(first.getRetries(), 1);
+        assertEquals(first.getItems(), 4);
+        assertEquals(second.getRequests(), 1);
+        assertEquals(second.getRetries(), 0);
+        assertEquals(second.getInFlight(), 0);
+        assertTrue(second.getLatencyPercentileNanos(1) > 0);
+
+        // endpoints added later report to the same metrics
+        PublishEndpoint third = new PublishEndpoint(this.first.uri());
+        pubControl.addEndpoint(third);
+        assertSame(third.getMetrics(), metrics);
+    }
+
+    @Test
+    public void testMetricsQueueDepth() throws Exception {
+        List<String> results = new CopyOnWriteArrayList<String>();
+        CountingPublishMetrics metrics = new CountingPublishMetrics();
+        this.first.gate = new CountDownLatch(1);
+        GripPubControl pubControl = new GripPubControl();
+        pubControl.setMetrics(metrics);
+        pubControl.addEndpoint(new PublishEndpoint(this.first.uri()));
+        CountingPublishMetrics.EndpointMetrics endpointMetrics =
+                metrics.getEndpointMetrics(pubControl.getEndpoints().get(0));
+        publish(pubControl, "m0", results);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (this.first.bodies.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        publish(pubControl, "m1", results);
+        publish(pubControl, "m2", results);
+        assertEquals(endpointMetrics.getQueueDepth(), 2);
+        assertEquals(endpointMetrics.getInFlight(), 1);
+        this.first.gate.countDown();
+        assertTrue(pubControl.flush(10, TimeUnit.SECONDS));
+        assertEquals(endpointMetrics.getQueueDepth(), 0);
+        assertEquals(endpointMetrics.getInFlight(), 0);
+        assertEquals(endpointMetrics.getSuccesses(), 3);
+    }
+
+    @Test
+    public void testParallelFanOut() throws Exception {
+        final GripPubControl pubControl = createPubControl();
+        Endpoint third = new Endpoint();
+        this.first.gate = new CountDownLatch(1);
+        this.second.gate = new CountDownLatch(1);
+        try {
+            pubControl.addEndpoint(new PublishEndpoint(third.uri()));
+            FutureTask<PublishResult> task = new FutureTask<PublishResult>(new Callable<PublishResult>() {
+                public PublishResult call() throws Exception {
+                    return pubControl.publishWithResult(Arrays.asList("a"), new PublishItem(
+                            new HttpStreamFormat("content"), null, null));
+                }
+            });
+            new Thread(task).start();
+            // every endpoint receives the request while the first two are
+            // still held up, which a sequential fan-out never gets to
+            long deadline = System.currentTimeMillis() + 10000;
+            while ((this.first.bodies.isEmpty() || this.second.bodies.isEmpty() || third.bodies.isEmpty()) &&
+                    System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(this.first.bodies.size(), 1);
+            assertEquals(this.second.bodies.size(), 1);
+            assertEquals(third.bodies.size(), 1);
+            assertFalse(task.isDone());
+            this.first.gate.countDown();
+            this.second.gate.countDown();
+
+            PublishResult result = task.get(10, TimeUnit.SECONDS);
+            assertTrue(result.isSuccess());
+            assertEquals(result.getOutcomes().size(), 3);
+            assertEquals(result.getSucceeded().size(), 3);
+            assertTrue(result.getFailed().isEmpty());
+            assertNull(result.getFirstError());
+            PublishResult.Outcome last = result.getOutcomes().get(2);
+            assertEquals(last.getEndpoint().getUri(), third.uri());
+            assertNull(last.getClient());
+            assertTrue(last.getElapsedNanos() > 0);
+        } finally {
+            this.second.gate.countDown();
+            third.server.stop(0);
+        }
+    }
+
+    @Test
+    public void testPublishTimeout() throws Exception {
+        GripPubControl pubControl = createPubControl();
+        pubControl.setPublishTimeout(2000, TimeUnit.MILLISECONDS);
+        // the first endpoint doesn't respond until after the timeout
+        this.first.gate = new CountDownLatch(1);
+        this.second.status = 500;
+        PublishResult result = pubControl.publishWithResult(Arrays.asList("a"), new PublishItem(
+                new HttpStreamFormat("content"), null, null));
+        assertEquals(this.first.gate.getCount(), 1);
+        assertFalse(result.isSuccess());
+        assertEquals(result.getFailed().size(), 2);
+        assertEquals(result.getOutcomes().get(0).getError().getMessage(), "failed to publish: timed out");
+        assertEquals(result.getOutcomes().get(1).getError().getMessage(), "failed to publish: 500 Failed");
+        assertEquals(result.getFirstError().getMessage(), "failed to publish: timed out");
+        this.first.gate.countDown();
+
+        // the first server may still be busy with the request that timed out
+        this.second.status = 200;
+        pubControl.setPublishTimeout(0, TimeUnit.MILLISECONDS);
+        result = pubControl.publishWithResult(Arrays.asList("a"), new PublishItem(
+                new HttpStreamFormat("content"), null, null));
+        assertTrue(result.isSuccess());
+        assertEquals(result.toString(), "[" + this.first.uri() + ": ok, " + this.second.uri() + ": ok]");
+    }
+}
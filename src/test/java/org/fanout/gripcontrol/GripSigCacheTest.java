@@ -0,0 +1,141 @@
+package org.fanout.gripcontrol;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class GripSigCacheTest {
+    @Test
+    public void testContainsUntilExpiry() {
+        GripSigCache cache = new GripSigCache(10);
+        assertFalse(cache.contains("a", 0));
+        cache.put("a", 1000);
+        assertTrue(cache.contains("a", 999));
+        assertTrue(cache.contains("a", 1000));
+        assertEquals(cache.getHitCount(), 2);
+        assertFalse(cache.contains("a", 1001));
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getMissCount(), 2);
+        assertEquals(cache.getEvictionCount(), 1);
+    }
+
+    @Test
+    public void testEvictsOldest() {
+        GripSigCache cache = new GripSigCache(2);
+        cache.put("a", 1000);
+        cache.put("b", 1000);
+        cache.put("a", 2000);
+        cache.put("c", 1000);
+        assertEquals(cache.size(), 2);
+        assertFalse(cache.contains("a", 0));
+        assertTrue(cache.contains("b", 0));
+        assertTrue(cache.contains("c", 0));
+        assertEquals(cache.getEvictionCount(), 1);
+        cache.clear();
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testEvictionAfterExpiry() {
+        GripSigCache cache = new GripSigCache(3);
+        for (int i = 0; i < 100; i++) {
+            cache.put("t" + i, i);
+            assertFalse(cache.contains("t" + i, i + 1));
+        }
+        cache.put("x", 1000);
+        cache.put("y", 1000);
+        cache.put("z", 1000);
+        assertTrue(cache.contains("x", 0));
+        assertTrue(cache.contains("y", 0));
+        assertTrue(cache.contains("z", 0));
+    }
+
+    @Test
+    public void testEvictionAfterReadding() {
+        GripSigCache cache = new GripSigCache(2);
+        cache.put("a", 10);
+        assertFalse(cache.contains("a", 11));
+        cache.put("b", 1000);
+        cache.put("a", 1000);
+        cache.put("c", 1000);
+        assertEquals(cache.size(), 2);
+        assertFalse(cache.contains("b", 0));
+        assertTrue(cache.contains("a", 0));
+        assertTrue(cache.contains("c", 0));
+        assertEquals(cache.getOrderLength(), 2);
+    }
+
+    @Test
+    public void testOrderBounded() throws Exception {
+        final GripSigCache cache = new GripSigCache(50);
+        // tokens that expire before the next one is put, so they leave the
+        // cache on lookup and only the purge removes them from the queue
+        for (int i = 0; i < 10000; i++) {
+            cache.put("t" + i, i);
+            assertFalse(cache.contains("t" + i, i + 1));
+            assertTrue(cache.getOrderLength() <= 100);
+        }
+        // and tokens evicted because the cache is full, from several threads
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 10000;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        cache.put("u" + (offset + i), Long.MAX_VALUE);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(cache.size() <= 50);
+        assertTrue(cache.getOrderLength() <= 100 + threads.length);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new GripSigCache(0);
+    }
+
+    @Test
+    public void testValidatorCachesSuccesses() {
+        byte[] key = "secret".getBytes();
+        long now = System.currentTimeMillis();
+        String token = Jwts.builder().setIssuer("pushpin").setExpiration(new Date(now + 60000))
+                .signWith(SignatureAlgorithm.HS256, key).compact();
+        GripSigValidator validator = new GripSigValidator(key, 16);
+        GripSigCache cache = validator.getCache();
+        assertEquals(validator.validate(token, now), GripSigValidator.Result.VALID);
+        assertEquals(validator.validate(token, now), GripSigValidator.Result.VALID);
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(validator.validate(token, now + 120000), GripSigValidator.Result.EXPIRED);
+        assertEquals(cache.size(), 0);
+        assertNull(new GripSigValidator(key).getCache());
+    }
+
+    @Test
+    public void testValidatorDoesNotCacheFailures() {
+        byte[] key = "secret".getBytes();
+        long now = System.currentTimeMillis();
+        String token = Jwts.builder().setExpiration(new Date(now + 60000))
+                .signWith(SignatureAlgorithm.HS256, "other".getBytes()).compact();
+        String notBefore = Jwts.builder().setExpiration(new Date(now + 60000))
+                .setNotBefore(new Date(now + 30000)).signWith(SignatureAlgorithm.HS256, key).compact();
+        String noExpiry = Jwts.builder().setIssuer("pushpin").signWith(SignatureAlgorithm.HS256, key).compact();
+        GripSigValidator validator = new GripSigValidator(key, 16);
+        assertEquals(validator.validate(token, now), GripSigValidator.Result.INVALID_SIGNATURE);
+        assertEquals(validator.validate(notBefore, now), GripSigValidator.Result.NOT_YET_VALID);
+        assertEquals(validator.validate(noExpiry, now), GripSigValidator.Result.VALID);
+        assertEquals(validator.validate("abc", now), GripSigValidator.Result.MALFORMED);
+        assertEquals(validator.getCache().size(), 0);
+        assertEquals(validator.getCache().getHitCount(), 0);
+    }
+}
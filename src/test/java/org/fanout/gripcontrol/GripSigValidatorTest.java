@@ -0,0 +1,112 @@
+package org.fanout.gripcontrol;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class GripSigValidatorTest {
+    private static final String VALID_TOKEN = "eyJ0eXAiOiJKV1QiLCJhbGciOiJIUzI1NiJ9.eyJpc3MiOlsiT25saW5lIEpXVCBCdWlsZGVyIiwidGVzdGlzcy" +
+            "JdLCJpYXQiOjk3MzI5NTg4NSwiZXhwIjoyNTUxMDQ2Mjg1LCJhdWQiOiJ3d3cuZXhhbXBsZS5jb20iLCJzdWIiOiJq" +
+            "cm9ja2V0QGV4YW1wbGUuY29tIn0.Wmm-ulXbOun3egbdqmxjCqegyYu8Tr5MAaguie4rmTE";
+    private static final String EXPIRED_TOKEN = "eyJ0eXAiOiJKV1QiLCJhbGciOiJIUzI1NiJ9.eyJpc3MiOlsiT25saW5lIEpXVCBCdWlsZGVyIiwi" +
+            "dGVzdGlzcyJdLCJpYXQiOjk3MzI5NTg4NSwiZXhwIjoxMDA0NzQ1NDg1LCJhdWQiOiJ3d3cuZXhhbXBsZS5jb20iLC" +
+            "JzdWIiOiJqcm9ja2V0QGV4YW1wbGUuY29tIn0.W8e4mxvbMKuotkINOyZX5jDO7KFD-jpgPHbWNGV5CHQ";
+
+    @Test
+    public void testValidate() {
+        GripSigValidator validator = new GripSigValidator("a2V5");
+        assertEquals(validator.validate(VALID_TOKEN), GripSigValidator.Result.VALID);
+        assertTrue(validator.isValid(VALID_TOKEN));
+        assertEquals(validator.validate(EXPIRED_TOKEN), GripSigValidator.Result.EXPIRED);
+        assertEquals(new GripSigValidator("d3JvbmdrZXk=").validate(VALID_TOKEN),
+                GripSigValidator.Result.INVALID_SIGNATURE);
+        assertEquals(validator.validate(EXPIRED_TOKEN, 1004745485000L), GripSigValidator.Result.VALID);
+        assertEquals(validator.validate(EXPIRED_TOKEN, 1004745485001L), GripSigValidator.Result.EXPIRED);
+    }
+
+    @Test
+    public void testValidateMalformed() {
+        GripSigValidator validator = new GripSigValidator("a2V5");
+        String[] tokens = {null, "", "abc", "a.b", "a.b.c.d", VALID_TOKEN + ".", "!!!.e30.abc",
+                "e30.bm90IGpzb24.abc"};
+        for (String token : tokens) {
+            assertEquals(String.valueOf(token), validator.validate(token), GripSigValidator.Result.MALFORMED);
+        }
+        String tampered = VALID_TOKEN.substring(0, VALID_TOKEN.length() - 2) + "AA";
+        assertEquals(validator.validate(tampered), GripSigValidator.Result.INVALID_SIGNATURE);
+    }
+
+    @Test
+    public void testValidateAlgorithms() {
+        byte[] key = "secret".getBytes();
+        GripSigValidator validator = new GripSigValidator(key);
+        Date exp = new Date(System.currentTimeMillis() + 60000);
+        SignatureAlgorithm[] algorithms = {SignatureAlgorithm.HS256, SignatureAlgorithm.HS384, SignatureAlgorithm.HS512};
+        for (SignatureAlgorithm algorithm : algorithms) {
+            String token = Jwts.builder().setIssuer("pushpin").setExpiration(exp)
+                    .signWith(algorithm, key).compact();
+            assertEquals(validator.validate(token), GripSigValidator.Result.VALID);
+            assertTrue(GripControl.validateSig(token, "c2VjcmV0"));
+        }
+        String unsigned = Jwts.builder().setIssuer("pushpin").setExpiration(exp).compact();
+        assertEquals(validator.validate(unsigned + "AAAA"), GripSigValidator.Result.UNSUPPORTED_ALGORITHM);
+    }
+
+    @Test
+    public void testValidateNotBefore() {
+        byte[] key = "secret".getBytes();
+        GripSigValidator validator = new GripSigValidator(key);
+        long now = System.currentTimeMillis();
+        String token = Jwts.builder().setNotBefore(new Date(now + 60000))
+                .claim("nested", "{\"exp\":1}").signWith(SignatureAlgorithm.HS256, key).compact();
+        assertEquals(validator.validate(token, now), GripSigValidator.Result.NOT_YET_VALID);
+        assertEquals(validator.validate(token, now + 120000), GripSigValidator.Result.VALID);
+        assertFalse(GripControl.validateSig(token, "c2VjcmV0"));
+    }
+
+    @Test
+    public void testJsonScanner() {
+        GripSigValidator.JsonScanner scanner = new GripSigValidator.JsonScanner(
+                ("{ \"a\" : {\"exp\": 1, \"s\": \"}\"}, \"arr\": [1, [2], \"]\"], \"b\": true, " +
+                 "\"str\": \"x\\\"y\\u0041\", \"exp\" : 1.5e3 }").getBytes());
+        assertTrue(scanner.isObject());
+        assertEquals(scanner.stringMember("str"), "x\"yA");
+        assertEquals(scanner.secondsMemberAsMillis("exp"), 1500000L);
+        assertEquals(scanner.secondsMemberAsMillis("nbf"), Long.MIN_VALUE);
+        assertNull(scanner.stringMember("b"));
+        assertFalse(scanner.failed);
+        scanner = new GripSigValidator.JsonScanner("{\"exp\": 1, \"x\": }".getBytes());
+        scanner.stringMember("missing");
+        assertTrue(scanner.failed);
+    }
+
+    @Test
+    public void testJsonScannerClampsTimes() {
+        GripSigValidator.JsonScanner scanner = new GripSigValidator.JsonScanner(
+                ("{\"exp\": 9300000000000000, \"nbf\": -9300000000000000, \"a\": 99999999999999999999, " +
+                 "\"b\": 1e300, \"c\": -1e300, \"d\": -9223372036854775}").getBytes());
+        assertEquals(scanner.secondsMemberAsMillis("exp"), Long.MAX_VALUE);
+        assertEquals(scanner.secondsMemberAsMillis("nbf"), Long.MIN_VALUE + 1);
+        assertEquals(scanner.secondsMemberAsMillis("a"), Long.MAX_VALUE);
+        assertEquals(scanner.secondsMemberAsMillis("b"), Long.MAX_VALUE);
+        assertEquals(scanner.secondsMemberAsMillis("c"), Long.MIN_VALUE + 1);
+        assertEquals(scanner.secondsMemberAsMillis("d"), -9223372036854775000L);
+        assertFalse(scanner.failed);
+    }
+
+    @Test
+    public void testValidateFarFutureExpiration() {
+        byte[] key = "secret".getBytes();
+        GripSigValidator validator = new GripSigValidator(key);
+        String token = Jwts.builder().setIssuer("pushpin").claim("exp", 9300000000000000L)
+                .signWith(SignatureAlgorithm.HS256, key).compact();
+        assertEquals(validator.validate(token), GripSigValidator.Result.VALID);
+        token = Jwts.builder().setIssuer("pushpin").claim("nbf", -9300000000000000L)
+                .signWith(SignatureAlgorithm.HS256, key).compact();
+        assertEquals(validator.validate(token), GripSigValidator.Result.VALID);
+    }
+}
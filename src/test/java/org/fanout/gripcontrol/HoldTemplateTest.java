@@ -0,0 +1,57 @@
+package org.fanout.gripcontrol;
+
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HoldTemplateTest {
+    @Test
+    public void testRenderMatchesCreateHold() throws UnsupportedEncodingException {
+        JsonParser parser = new JsonParser();
+        List<Channel> channels = new ArrayList<Channel>();
+        channels.add(new Channel("chan1"));
+        channels.add(new Channel("chan2", "prev-id"));
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "text/plain");
+        Response response = new Response("body", headers, "200", "OK");
+        HoldTemplate template = HoldTemplate.compile("mode", channels, response, 5);
+        assertEquals(template.getChannelCount(), 2);
+        assertEquals(parser.parse(template.render()),
+                parser.parse(GripControl.createHold("mode", channels, response, 5)));
+        assertEquals(new String(template.renderBytes(), "utf-8"), template.render());
+        template = HoldTemplate.compileResponse(channels, null, 0);
+        assertEquals(parser.parse(template.render()),
+                parser.parse(GripControl.createHoldResponse(channels)));
+        template = HoldTemplate.compileStream(channels, response);
+        assertEquals(parser.parse(template.render()),
+                parser.parse(GripControl.createHoldStream(channels, response)));
+    }
+
+    @Test
+    public void testRenderWithPrevIds() throws UnsupportedEncodingException {
+        JsonParser parser = new JsonParser();
+        List<Channel> channels = new ArrayList<Channel>();
+        channels.add(new Channel("chan1"));
+        channels.add(new Channel("chan2", "prev-id"));
+        HoldTemplate template = HoldTemplate.compile("response", channels, null, 0);
+        assertEquals(parser.parse(template.render("a\"b\\c\n", null)),
+                parser.parse("{\"hold\":{\"mode\":\"response\",\"channels\":[{\"name\":\"chan1\"," +
+                        "\"prev-id\":\"a\\\"b\\\\c\\n\"},{\"name\":\"chan2\",\"prev-id\":\"prev-id\"}]}}"));
+        assertEquals(parser.parse(template.render("1", "2")),
+                parser.parse("{\"hold\":{\"mode\":\"response\",\"channels\":[{\"name\":\"chan1\"," +
+                        "\"prev-id\":\"1\"},{\"name\":\"chan2\",\"prev-id\":\"2\"}]}}"));
+        assertEquals(template.render("1"), template.render("1", null));
+        assertEquals(new String(template.renderBytes("é"), "utf-8"), template.render("é"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testTooManyPrevIds() {
+        List<Channel> channels = new ArrayList<Channel>();
+        channels.add(new Channel("chan1"));
+        HoldTemplate.compile("response", channels, null, 0).render("1", "2");
+    }
+}
@@ -2,12 +2,12 @@ package org.fanout.gripcontrol;
 
 import org.junit.Test;
 
-import javax.xml.bind.DatatypeConverter;
 import java.io.UnsupportedEncodingException;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class HttpResponseFormatTest {
     @Test
@@ -22,7 +22,7 @@ public class HttpResponseFormatTest {
         byte[] byteData = {(byte) Integer.parseInt("10001111", 2), (byte) Integer.parseInt("10111111", 2)};
         format = new HttpResponseFormat(byteData);
         export = (Map<String, Object>)format.export();
-        assertEquals(export.get("body-bin"), DatatypeConverter.printBase64Binary(byteData));
+        assertEquals(export.get("body-bin"), Base64.getEncoder().encodeToString(byteData));
         Map<String, String> headers = new HashMap<String, String>();
         format = new HttpResponseFormat("body", headers, "code", "reason");
         assertEquals(format.name(), "http-response");
@@ -42,6 +42,53 @@ public class HttpResponseFormatTest {
         assertEquals(export.get("code"), "code");
         assertEquals(export.get("headers"), headers);
         assertEquals(export.get("reason"), "reason");
-        assertEquals(export.get("body-bin"), DatatypeConverter.printBase64Binary(byteData));
+        assertEquals(export.get("body-bin"), Base64.getEncoder().encodeToString(byteData));
+    }
+
+    @Test
+    public void testExportIsMemoized() throws UnsupportedEncodingException {
+        Map<String, String> headers = new HashMap<String, String>();
+        HttpResponseFormat format = new HttpResponseFormat("body", headers, "200", "OK");
+        Map<String, Object> export = (Map<String, Object>)format.export();
+        assertNotSame(format.export(), export);
+        assertEquals(format.export(), export);
+        GripJsonWriter writer = new GripJsonWriter();
+        format.exportTo(writer);
+        assertEquals(writer.toString(), "{\"code\":\"200\",\"reason\":\"OK\",\"headers\":{},\"body\":\"body\"}");
+        format.body = "other".getBytes("utf-8");
+        export = (Map<String, Object>)format.export();
+        assertEquals(export.get("body"), "other");
+        format.code = "404";
+        assertEquals(((Map<String, Object>)format.export()).get("code"), "404");
+        format.headers = null;
+        assertFalse(((Map<String, Object>)format.export()).containsKey("headers"));
+    }
+
+    @Test
+    public void testExportDetectsChangesInPlace() throws UnsupportedEncodingException {
+        Map<String, String> headers = new HashMap<String, String>();
+        HttpResponseFormat format = new HttpResponseFormat("body", headers, "200", "OK");
+        format.export();
+        format.body[0] = 'B';
+        assertEquals(((Map<String, Object>)format.export()).get("body"), "Body");
+        headers.put("name", "value");
+        assertEquals(((Map<String, Object>)format.export()).get("headers"), headers);
+        GripJsonWriter writer = new GripJsonWriter();
+        format.exportTo(writer);
+        assertEquals(writer.toString(), "{\"code\":\"200\",\"reason\":\"OK\"," +
+                "\"headers\":{\"name\":\"value\"},\"body\":\"Body\"}");
+    }
+
+    @Test
+    public void testExportIsModifiable() throws UnsupportedEncodingException {
+        Map<String, String> headers = new HashMap<String, String>();
+        HttpResponseFormat format = new HttpResponseFormat("body", headers, "200", "OK");
+        Map<String, Object> export = (Map<String, Object>)format.export();
+        export.put("code", "404");
+        ((Map<String, String>)export.get("headers")).put("name", "value");
+        export = (Map<String, Object>)format.export();
+        assertEquals(export.get("code"), "200");
+        assertTrue(((Map<String, String>)export.get("headers")).isEmpty());
+        assertTrue(headers.isEmpty());
     }
 }
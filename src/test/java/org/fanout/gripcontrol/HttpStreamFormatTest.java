@@ -2,11 +2,11 @@ package org.fanout.gripcontrol;
 
 import org.junit.Test;
 
-import javax.xml.bind.DatatypeConverter;
 import java.io.UnsupportedEncodingException;
+import java.util.Base64;
 import java.util.Map;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class HttpStreamFormatTest {
     @Test
@@ -21,12 +21,30 @@ public class HttpStreamFormatTest {
         byte[] byteData = {(byte) Integer.parseInt("10001111", 2), (byte) Integer.parseInt("10111111", 2)};
         format = new HttpStreamFormat(byteData);
         export = (Map<String, Object>)format.export();
-        assertEquals(export.get("content-bin"), DatatypeConverter.printBase64Binary(byteData));
+        assertEquals(export.get("content-bin"), Base64.getEncoder().encodeToString(byteData));
         format = new HttpStreamFormat(HttpStreamAction.CLOSE);
         export = (Map<String, Object>)format.export();
         assertEquals(export.get("action"), "close");
     }
 
+    @Test
+    public void testExportIsMemoized() throws UnsupportedEncodingException {
+        HttpStreamFormat format = new HttpStreamFormat("content");
+        Map<String, Object> export = (Map<String, Object>)format.export();
+        assertNotSame(format.export(), export);
+        assertEquals(format.export(), export);
+        format.content = "other".getBytes("utf-8");
+        format.export();
+        format.content[0] = 'O';
+        assertEquals(((Map<String, Object>)format.export()).get("content"), "Other");
+        format.content[0] = 'o';
+        assertEquals(((Map<String, Object>)format.export()).get("content"), "other");
+        format.isClose = true;
+        GripJsonWriter writer = new GripJsonWriter();
+        format.exportTo(writer);
+        assertEquals(writer.toString(), "{\"action\":\"close\"}");
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void testHttpStreamFormatException1() throws UnsupportedEncodingException, IllegalArgumentException {
         HttpStreamFormat format = new HttpStreamFormat((byte[])null);
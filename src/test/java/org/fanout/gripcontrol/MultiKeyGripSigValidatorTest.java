@@ -0,0 +1,78 @@
+package org.fanout.gripcontrol;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class MultiKeyGripSigValidatorTest {
+    private static final byte[] OLD_KEY = "old-secret".getBytes();
+    private static final byte[] NEW_KEY = "new-secret".getBytes();
+
+    private static String token(String keyId, String issuer, byte[] key) {
+        return Jwts.builder().setHeaderParam("kid", keyId).setIssuer(issuer)
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(SignatureAlgorithm.HS256, key).compact();
+    }
+
+    @Test
+    public void testTriesAllKeys() {
+        MultiKeyGripSigValidator.Key oldKey = new MultiKeyGripSigValidator.Key(OLD_KEY);
+        MultiKeyGripSigValidator.Key newKey = new MultiKeyGripSigValidator.Key(NEW_KEY);
+        MultiKeyGripSigValidator validator = new MultiKeyGripSigValidator(oldKey, newKey);
+        assertTrue(validator.isValid(token(null, null, OLD_KEY)));
+        assertTrue(validator.isValid(token(null, null, NEW_KEY)));
+        assertEquals(validator.getKeys().get(0), newKey);
+        assertTrue(validator.isValid(token(null, null, OLD_KEY)));
+        assertEquals(validator.getKeys().get(0), oldKey);
+        assertEquals(validator.validate(token(null, null, "other".getBytes())),
+                GripSigValidator.Result.INVALID_SIGNATURE);
+        assertEquals(validator.validate("abc"), GripSigValidator.Result.MALFORMED);
+    }
+
+    @Test
+    public void testSelectsByKeyIdAndIssuer() {
+        MultiKeyGripSigValidator validator = new MultiKeyGripSigValidator(
+                new MultiKeyGripSigValidator.Key("old", "pushpin", OLD_KEY),
+                new MultiKeyGripSigValidator.Key("new", "fanout", NEW_KEY));
+        assertTrue(validator.isValid(token("old", null, OLD_KEY)));
+        assertTrue(validator.isValid(token("new", null, NEW_KEY)));
+        assertFalse(validator.isValid(token("old", null, NEW_KEY)));
+        assertTrue(validator.isValid(token(null, "fanout", NEW_KEY)));
+        assertFalse(validator.isValid(token(null, "pushpin", NEW_KEY)));
+        assertTrue(validator.isValid(token("unknown", "pushpin", OLD_KEY)));
+        assertTrue(validator.isValid(token(null, "unknown", NEW_KEY)));
+    }
+
+    @Test
+    public void testReportsTimeFailuresOfMatchingKey() {
+        MultiKeyGripSigValidator validator = new MultiKeyGripSigValidator(
+                new MultiKeyGripSigValidator.Key(OLD_KEY), new MultiKeyGripSigValidator.Key(NEW_KEY));
+        String token = token(null, null, NEW_KEY);
+        assertEquals(validator.validate(token, System.currentTimeMillis() + 120000),
+                GripSigValidator.Result.EXPIRED);
+    }
+
+    @Test
+    public void testSetKeys() {
+        MultiKeyGripSigValidator validator = new MultiKeyGripSigValidator(
+                new MultiKeyGripSigValidator.Key(OLD_KEY));
+        String token = token(null, null, NEW_KEY);
+        assertFalse(validator.isValid(token));
+        validator.setKeys(Arrays.asList(new MultiKeyGripSigValidator.Key(OLD_KEY),
+                new MultiKeyGripSigValidator.Key(NEW_KEY)));
+        assertTrue(validator.isValid(token));
+        validator.setKeys(Arrays.<MultiKeyGripSigValidator.Key>asList());
+        assertEquals(validator.validate(token), GripSigValidator.Result.INVALID_SIGNATURE);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testDuplicateKeyId() {
+        new MultiKeyGripSigValidator(new MultiKeyGripSigValidator.Key("a", null, OLD_KEY),
+                new MultiKeyGripSigValidator.Key("a", null, NEW_KEY));
+    }
+}
@@ -0,0 +1,281 @@
+package org.fanout.gripcontrol;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PooledHttpTransportTest {
+    // a minimal HTTP/1.1 server whose behavior each test sets
+    private static class Server implements Runnable {
+        final ServerSocket socket;
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final List<String> requests = new CopyOnWriteArrayList<String>();
+        volatile String response = "HTTP/1.1 200 OK\r\nContent-Length: 9\r\n\r\nPublished";
+        volatile boolean closeAfterResponse;
+        volatile boolean closeBeforeResponse;
+        volatile long delayMillis;
+
+        Server() throws IOException {
+            this.socket = new ServerSocket(0);
+            Thread thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        URL url() throws IOException {
+            return new URL("http://127.0.0.1:" + this.socket.getLocalPort() + "/publish/");
+        }
+
+        public void run() {
+            while (true) {
+                final Socket connection;
+                try {
+                    connection = this.socket.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                this.connections.incrementAndGet();
+                Thread thread = new Thread(new Runnable() {
+                    public void run() {
+                        serve(connection);
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        private void serve(Socket connection) {
+            try {
+                InputStream in = new BufferedInputStream(connection.getInputStream());
+                OutputStream out = connection.getOutputStream();
+                String line;
+                while ((line = readLine(in)) != null) {
+                    StringBuilder request = new StringBuilder(line).append('\n');
+                    int length = 0;
+                    while (!(line = readLine(in)).isEmpty()) {
+                        request.append(line).append('\n');
+                        if (line.startsWith("Content-Length: "))
+                            length = Integer.parseInt(line.substring(16));
+                    }
+                    byte[] body = new byte[length];
+                    new DataInputStream(in).readFully(body);
+                    request.append('\n').append(new String(body, StandardCharsets.UTF_8));
+                    int active = this.active.incrementAndGet();
+                    synchronized (this.maxActive) {
+                        this.maxActive.set(Math.max(this.maxActive.get(), active));
+                    }
+                    this.requests.add(request.toString());
+                    if (this.closeBeforeResponse)
+                        break;
+                    if (this.delayMillis > 0)
+                        Thread.sleep(this.delayMillis);
+                    this.active.decrementAndGet();
+                    out.write(this.response.getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                    if (this.closeAfterResponse)
+                        break;
+                }
+                connection.close();
+            } catch (Exception e) {
+                try {
+                    connection.close();
+                } catch (IOException closeError) {
+                    // already closed
+                }
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0)
+                    return null;
+                if (b != '\r')
+                    line.append((char)b);
+            }
+            return line.toString();
+        }
+    }
+
+    private Server server;
+    private PooledHttpTransport transport;
+
+    @Before
+    public void start() throws IOException {
+        this.server = new Server();
+        this.transport = new PooledHttpTransport(2, 5000, 5000);
+    }
+
+    @After
+    public void stop() throws IOException {
+        this.transport.close();
+        this.server.socket.close();
+    }
+
+    @Test
+    public void testKeepAlive() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            PublishTransport.Response response = this.transport.publish(this.server.url(), "Bearer token",
+                    ("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8));
+            assertEquals(response.getCode(), 200);
+            assertEquals(response.getBody(), "Published");
+        }
+        assertEquals(this.server.connections.get(), 1);
+        assertEquals(this.transport.getOpenConnections(), 1);
+        String request = this.server.requests.get(4);
+        assertTrue(request.startsWith("POST /publish/ HTTP/1.1\n"));
+        assertTrue(request.contains("\nHost: 127.0.0.1:" + this.server.socket.getLocalPort() + "\n"));
+        assertTrue(request.contains("\nContent-Type: application/json\n"));
+        assertTrue(request.contains("\nAuthorization: Bearer token\n"));
+        assertTrue(request.endsWith("\n\n{\"n\":4}"));
+    }
+
+    @Test
+    public void testMaxConnections() throws Exception {
+        this.server.delayMillis = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<PublishTransport.Response>> responses = new ArrayList<Future<PublishTransport.Response>>();
+            for (int i = 0; i < 6; i++) {
+                responses.add(executor.submit(new Callable<PublishTransport.Response>() {
+                    public PublishTransport.Response call() throws Exception {
+                        return transport.publish(server.url(), null, "{}".getBytes(StandardCharsets.UTF_8));
+                    }
+                }));
+            }
+            for (Future<PublishTransport.Response> response : responses) {
+                assertEquals(response.get(10, TimeUnit.SECONDS).getCode(), 200);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(this.server.requests.size(), 6);
+        assertTrue(this.server.connections.get() <= 2);
+        assertTrue(this.server.maxActive.get() <= 2);
+        assertFalse(this.server.requests.get(0).contains("Authorization"));
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        // the server closes each connection without saying so, which the
+        // transport only notices when it reuses the connection
+        this.server.closeAfterResponse = true;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(this.transport.publish(this.server.url(), null, new byte[0]).getCode(), 200);
+        }
+        assertEquals(this.server.requests.size(), 3);
+        assertEquals(this.server.connections.get(), 3);
+        this.server.closeAfterResponse = false;
+        this.server.response = "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\nOK";
+        this.transport.publish(this.server.url(), null, new byte[0]);
+        assertEquals(this.transport.getOpenConnections(), 0);
+    }
+
+    @Test
+    public void testResendOnce() throws Exception {
+        // open two connections by publishing while the first is in use
+        this.server.delayMillis = 200;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<PublishTransport.Response> first = executor.submit(new Callable<PublishTransport.Response>() {
+                public PublishTransport.Response call() throws Exception {
+                    return transport.publish(server.url(), null, new byte[0]);
+                }
+            });
+            while (this.server.requests.isEmpty()) {
+                Thread.sleep(1);
+            }
+            assertEquals(this.transport.publish(this.server.url(), null, new byte[0]).getCode(), 200);
+            assertEquals(first.get(10, TimeUnit.SECONDS).getCode(), 200);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(this.server.connections.get(), 2);
+        // the server now receives each request but fails before responding
+        this.server.delayMillis = 0;
+        this.server.closeBeforeResponse = true;
+        try {
+            this.transport.publish(this.server.url(), null, new byte[0]);
+            fail();
+        } catch (IOException e) {
+            // sent on a reused connection and once more on a new one
+        }
+        assertEquals(this.server.requests.size(), 4);
+        assertEquals(this.server.connections.get(), 3);
+        assertEquals(this.transport.getOpenConnections(), 0);
+    }
+
+    @Test
+    public void testResponses() throws Exception {
+        this.server.response = "HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 500 Internal Server Error\r\n" +
+                "Transfer-Encoding: chunked\r\n\r\n4;ext=1\r\nFail\r\n3\r\ned!\r\n0\r\nTrailer: x\r\n\r\n";
+        PublishTransport.Response response = this.transport.publish(this.server.url(), null, new byte[0]);
+        assertEquals(response.getCode(), 500);
+        assertEquals(response.getBody(), "Failed!");
+        this.server.response = "HTTP/1.1 204 No Content\r\n\r\n";
+        response = this.transport.publish(this.server.url(), null, new byte[0]);
+        assertEquals(response.getCode(), 204);
+        assertEquals(response.getBody(), "");
+        assertEquals(this.server.connections.get(), 1);
+    }
+
+    @Test
+    public void testReadTimeout() throws Exception {
+        this.transport = new PooledHttpTransport(1, 5000, 100);
+        // the response would arrive if the read didn't time out first
+        this.server.delayMillis = 2000;
+        try {
+            this.transport.publish(this.server.url(), null, new byte[0]);
+            fail();
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+        assertEquals(this.transport.getOpenConnections(), 0);
+        assertEquals(this.server.requests.size(), 1);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        this.transport.publish(this.server.url(), null, new byte[0]);
+        this.transport.close();
+        assertEquals(this.transport.getOpenConnections(), 0);
+        try {
+            this.transport.publish(this.server.url(), null, new byte[0]);
+            fail();
+        } catch (IOException e) {
+            assertEquals(e.getMessage(), "transport closed");
+        }
+    }
+
+    @Test
+    public void testEndpoint() throws Exception {
+        PublishEndpoint endpoint = new PublishEndpoint("http://127.0.0.1:" + this.server.socket.getLocalPort());
+        endpoint.setTransport(this.transport);
+        endpoint.publish("{\"items\":[]}".getBytes(StandardCharsets.UTF_8));
+        endpoint.publish("{\"items\":[]}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(this.server.connections.get(), 1);
+        this.server.response = "HTTP/1.1 403 Forbidden\r\nContent-Length: 6\r\n\r\nDenied";
+        try {
+            endpoint.publish(new byte[0]);
+            fail();
+        } catch (org.fanout.pubcontrol.PublishFailedException e) {
+            assertEquals(e.getMessage(), "failed to publish: 403 Denied");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.fanout.gripcontrol;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+    @Test
+    public void testBackoff() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, 0.1);
+        long[] caps = {100, 200, 400, 800, 1000, 1000, 1000};
+        for (int attempt = 1; attempt <= caps.length; attempt++) {
+            long max = 0;
+            for (int i = 0; i < 1000; i++) {
+                long backoff = policy.backoffMillis(attempt);
+                assertTrue(backoff >= 0 && backoff <= caps[attempt - 1]);
+                max = Math.max(max, backoff);
+            }
+            assertTrue(max > caps[attempt - 1] / 2);
+        }
+        assertEquals(new RetryPolicy(3, 0, 0, 0).backoffMillis(5), 0);
+        long max = 0;
+        for (int i = 0; i < 100; i++) {
+            max = Math.max(max, new RetryPolicy(3, 1, Long.MAX_VALUE, 0).backoffMillis(100));
+        }
+        assertTrue(max > 1L << 60);
+    }
+
+    @Test
+    public void testInvalid() {
+        try {
+            new RetryPolicy(0, 1, 1, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new RetryPolicy(1, 10, 1, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new RetryPolicy(1, 1, 1, Double.NaN);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.fanout.gripcontrol;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ThreadsTest {
+    private static boolean isVirtual(Thread thread) throws Exception {
+        return (Boolean)Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    @Test
+    public void testPlatformThread() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        Thread thread = Threads.newThread("test", false, new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        });
+        assertEquals(thread.getName(), "test");
+        assertTrue(thread.isDaemon());
+        thread.start();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        if (Threads.isVirtualSupported())
+            assertFalse(isVirtual(thread));
+    }
+
+    @Test
+    public void testVirtualThread() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        Thread thread = Threads.newThread("test", true, new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        });
+        assertEquals(thread.getName(), "test");
+        assertTrue(thread.isDaemon());
+        thread.start();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        if (Threads.isVirtualSupported())
+            assertTrue(isVirtual(thread));
+        else
+            assertFalse(new PublishEndpoint(null).setVirtualThreads(true));
+    }
+}
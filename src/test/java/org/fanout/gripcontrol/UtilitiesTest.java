@@ -3,6 +3,10 @@ package org.fanout.gripcontrol;
 import org.junit.Test;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -62,4 +66,92 @@ public class UtilitiesTest {
                     toTest.length());
         }
     }
+
+    @Test
+    public void testUtf8LengthFromString() throws UnsupportedEncodingException {
+        for (String toTest : stringTests) {
+            assertEquals(String.format("utf8Length('%s')", toTest),
+                    Utilities.utf8Length(toTest),
+                    toTest.getBytes("utf-8").length);
+        }
+        assertEquals(Utilities.utf8Length("\ud83d"), "\ud83d".getBytes("utf-8").length);
+    }
+
+    @Test
+    public void testValidateMatchesDecoder() {
+        int[][] sequences = {
+            {0xc0, 0x80}, {0xc1, 0xbf}, {0xc2, 0x80}, {0xe0, 0x9f, 0x80}, {0xe0, 0xa0, 0x80},
+            {0xed, 0x9f, 0xbf}, {0xed, 0xa0, 0x80}, {0xef, 0xbf, 0xbf}, {0xf0, 0x8f, 0x80, 0x80},
+            {0xf0, 0x90, 0x80, 0x80}, {0xf4, 0x8f, 0xbf, 0xbf}, {0xf4, 0x90, 0x80, 0x80},
+            {0xf5, 0x80, 0x80, 0x80}, {0xff}, {0xe2, 0x82}, {0xf0, 0x9f, 0x98}, {0x80}
+        };
+        for (int[] sequence : sequences) {
+            byte[] bytes = new byte[sequence.length + 9];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = 'a';
+            }
+            for (int i = 0; i < sequence.length; i++) {
+                bytes[9 + i] = (byte) sequence[i];
+            }
+            assertEquals(Utilities.isUtf8(bytes), decodes(bytes, 0, bytes.length));
+        }
+        Random random = new Random(1);
+        for (int n = 0; n < 2000; n++) {
+            byte[] bytes = ("plain ascii text " + n + " ñ 😀").getBytes(StandardCharsets.UTF_8);
+            bytes[random.nextInt(bytes.length)] = (byte) random.nextInt(256);
+            assertEquals(Utilities.isUtf8(bytes), decodes(bytes, 0, bytes.length));
+            int length = Utilities.charLength(bytes);
+            if (length >= 0)
+                assertEquals(length, new String(bytes, StandardCharsets.UTF_8).length());
+            else
+                assertNull(Utilities.utf8BytesToString(bytes));
+        }
+    }
+
+    @Test
+    public void testValidateRange() {
+        byte[] bytes = {(byte) 0xff, 'a', 'b', (byte) 0xc3, (byte) 0xb1, (byte) 0xc3};
+        assertFalse(Utilities.isUtf8(bytes));
+        assertTrue(Utilities.isUtf8(bytes, 1, 4));
+        assertFalse(Utilities.isUtf8(bytes, 1, 5));
+        assertEquals(Utilities.utf8BytesToString(bytes, 1, 4), "abñ");
+    }
+
+    @Test
+    public void testDecodeBase64() {
+        assertArrayEquals(Utilities.decodeBase64("a2V5"), "key".getBytes());
+        assertArrayEquals(Utilities.decodeBase64("a2V5\r\nMQ=="), "key1".getBytes());
+        // a trailing partial group is dropped, as by DatatypeConverter
+        assertArrayEquals(Utilities.decodeBase64("a2V5MQ"), "key".getBytes());
+    }
+
+    @Test
+    public void testDecodeBase64MatchesDatatypeConverter() {
+        String[] values = {"secret", "abcde", "YWJjZA", "YWJjZA==", "a2V5", "a2V", "a", "",
+                "changeme", "a2V5\r\nMQ==", "a2 V5 MQ ==", "a2V5!MQ==", "=a2V", "a=2V", "YW=JjZA==",
+                "YWJjZA===", "c2VjcmV0LWtleS0xMjM0NTY3ODkw", "c2VjcmV0LWtleS0xMjM0NTY3ODk"};
+        for (String value : values) {
+            assertArrayEquals(value, Utilities.decodeBase64(value),
+                    javax.xml.bind.DatatypeConverter.parseBase64Binary(value));
+        }
+        assertEquals(Utilities.decodeBase64("secret").length, 3);
+        assertEquals(Utilities.decodeBase64("abcde").length, 3);
+        // DatatypeConverter throws on these rather than decoding them
+        assertArrayEquals(Utilities.decodeBase64("YWJjZA="), "abc".getBytes());
+        assertArrayEquals(Utilities.decodeBase64("a2V5\u00e9"), "key".getBytes());
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testValidateRangeOutOfBounds() {
+        Utilities.isUtf8(new byte[4], 2, 3);
+    }
+
+    private static boolean decodes(byte[] bytes, int offset, int length) {
+        try {
+            StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes, offset, length));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package org.fanout.gripcontrol;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class WebSocketEventDecoderTest {
+    private static final byte[] eventsBytes = new byte[] {
+        'O', 'P', 'E', 'N', '\r', '\n',
+        'T', 'E', 'X', 'T', ' ', '5', '\r', '\n', 'H', 'e', 'l', 'l', 'o', '\r', '\n',
+        'T', 'E', 'X', 'T', ' ', '0', '\r', '\n', '\r', '\n',
+        'P', 'I', 'N', 'G', ' ', '4', '\r', '\n', (byte)0x1b, (byte)0x88, (byte)0xf4, (byte)0xee, '\r', '\n',
+        'C', 'L', 'O', 'S', 'E', '\r', '\n',
+    };
+
+    @Test
+    public void testFeedWhole() {
+        WebSocketEventDecoder decoder = new WebSocketEventDecoder();
+        List<WebSocketEvent> events = decoder.feed(eventsBytes);
+        decoder.finish();
+        assertEvents(events);
+    }
+
+    @Test
+    public void testFeedByteByByte() {
+        WebSocketEventDecoder decoder = new WebSocketEventDecoder();
+        List<WebSocketEvent> events = new ArrayList<WebSocketEvent>();
+        for (int i = 0; i < eventsBytes.length; i++) {
+            events.addAll(decoder.feed(eventsBytes, i, 1));
+        }
+        assertTrue(decoder.isIdle());
+        assertEvents(events);
+    }
+
+    @Test
+    public void testFeedByteBufferChunks() {
+        WebSocketEventDecoder decoder = new WebSocketEventDecoder();
+        List<WebSocketEvent> events = new ArrayList<WebSocketEvent>();
+        ByteBuffer buffer = ByteBuffer.wrap(eventsBytes);
+        while (buffer.hasRemaining()) {
+            ByteBuffer chunk = buffer.slice();
+            chunk.limit(Math.min(7, chunk.remaining()));
+            buffer.position(buffer.position() + chunk.remaining());
+            decoder.feed(chunk, events);
+            assertFalse(chunk.hasRemaining());
+        }
+        decoder.finish();
+        assertEvents(events);
+    }
+
+    @Test
+    public void testEventsEmittedAsCompleted() {
+        WebSocketEventDecoder decoder = new WebSocketEventDecoder();
+        assertEquals(decoder.feed("OPEN\r\nTEXT 5\r\nHel".getBytes()).size(), 1);
+        assertFalse(decoder.isIdle());
+        List<WebSocketEvent> events = decoder.feed("lo\r\n".getBytes());
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0).content, "Hello");
+        assertTrue(decoder.isIdle());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testFinishWithPartialEvent() {
+        WebSocketEventDecoder decoder = new WebSocketEventDecoder();
+        decoder.feed("TEXT 5\r\nHel".getBytes());
+        decoder.finish();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testMissingContentTerminator() {
+        new WebSocketEventDecoder().feed("TEXT 5\r\nHelloTEXT\r\n".getBytes());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testMaxContentLength() {
+        new WebSocketEventDecoder(4).feed("TEXT 5\r\n".getBytes());
+    }
+
+    @Test
+    public void testReset() {
+        WebSocketEventDecoder decoder = new WebSocketEventDecoder();
+        decoder.feed("TEXT 5\r\nHel".getBytes());
+        decoder.reset();
+        assertTrue(decoder.isIdle());
+        List<WebSocketEvent> events = decoder.feed("OPEN\r\n".getBytes());
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0).type, "OPEN");
+    }
+
+    private static void assertEvents(List<WebSocketEvent> events) {
+        assertEquals(events.size(), 5);
+        assertEquals(events.get(0).type, "OPEN");
+        assertNull(events.get(0).contentBytes);
+        assertEquals(events.get(1).type, "TEXT");
+        assertEquals(events.get(1).content, "Hello");
+        assertEquals(events.get(2).type, "TEXT");
+        assertEquals(events.get(2).content, "");
+        assertEquals(events.get(3).type, "PING");
+        assertArrayEquals(events.get(3).contentBytes,
+                new byte[] {(byte)0x1b, (byte)0x88, (byte)0xf4, (byte)0xee});
+        assertEquals(events.get(4).type, "CLOSE");
+        assertArrayEquals(GripControl.encodeWebSocketEventsBinary(events), eventsBytes);
+    }
+}
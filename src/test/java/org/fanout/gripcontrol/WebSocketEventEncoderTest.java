@@ -0,0 +1,87 @@
+package org.fanout.gripcontrol;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class WebSocketEventEncoderTest {
+    private static List<WebSocketEvent> getEvents() {
+        byte[] large = new byte[20000];
+        Arrays.fill(large, (byte)'a');
+        List<WebSocketEvent> events = new ArrayList<WebSocketEvent>();
+        events.add(new WebSocketEvent("OPEN"));
+        events.add(new WebSocketEvent("TEXT", "Hello"));
+        events.add(new WebSocketEvent("TEXT", ""));
+        events.add(new WebSocketEvent("BINARY", new byte[] {(byte)0x1b, (byte)0x88, (byte)0xf4}));
+        events.add(new WebSocketEvent("TEXT", large));
+        events.add(new WebSocketEvent("CLOSE"));
+        return events;
+    }
+
+    private static byte[] getExpected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("OPEN\r\nTEXT 5\r\nHello\r\nTEXT 0\r\n\r\nBINARY 3\r\n".getBytes("utf-8"));
+        out.write(new byte[] {(byte)0x1b, (byte)0x88, (byte)0xf4});
+        out.write("\r\nTEXT 4e20\r\n".getBytes("utf-8"));
+        byte[] large = new byte[20000];
+        Arrays.fill(large, (byte)'a');
+        out.write(large);
+        out.write("\r\nCLOSE\r\n".getBytes("utf-8"));
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testEncodedLength() throws IOException {
+        assertEquals(WebSocketEventEncoder.encodedLength(getEvents()), getExpected().length);
+        assertEquals(WebSocketEventEncoder.encodedLength(new ArrayList<WebSocketEvent>()), 0);
+    }
+
+    @Test
+    public void testEncodeByteArray() throws IOException {
+        assertArrayEquals(WebSocketEventEncoder.encode(getEvents()), getExpected());
+        assertArrayEquals(GripControl.encodeWebSocketEventsBinary(getEvents()), getExpected());
+    }
+
+    @Test
+    public void testEncodeByteBuffer() throws IOException {
+        byte[] expected = getExpected();
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length + 10);
+        buffer.put((byte)'x');
+        assertEquals(WebSocketEventEncoder.encode(getEvents(), buffer), expected.length);
+        assertEquals(buffer.position(), expected.length + 1);
+        assertArrayEquals(Arrays.copyOfRange(buffer.array(), 1, expected.length + 1), expected);
+    }
+
+    @Test
+    public void testEncodeByteBufferOverflow() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(getExpected().length - 1);
+        try {
+            WebSocketEventEncoder.encode(getEvents(), buffer);
+            fail();
+        } catch (BufferOverflowException e) {
+            assertEquals(buffer.position(), 0);
+        }
+    }
+
+    @Test
+    public void testEncodeOutputStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(WebSocketEventEncoder.encode(getEvents(), out), getExpected().length);
+        assertArrayEquals(out.toByteArray(), getExpected());
+    }
+
+    @Test
+    public void testEncodeChannel() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(WebSocketEventEncoder.encode(getEvents(), Channels.newChannel(out)),
+                getExpected().length);
+        assertArrayEquals(out.toByteArray(), getExpected());
+    }
+}
@@ -0,0 +1,69 @@
+package org.fanout.gripcontrol;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WebSocketEventParserTest {
+    private static int naiveIndexOfCrlf(byte[] bytes, int from, int to) {
+        for (int i = from; i < to - 1; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n')
+                return i;
+        }
+        return -1;
+    }
+
+    @Test
+    public void testIndexOfCrlf() {
+        Random random = new Random(1);
+        byte[] alphabet = {'\r', '\n', 'a', (byte)0x8d, (byte)0x0c, (byte)0x0e};
+        for (int n = 0; n < 2000; n++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = random.nextInt(4) == 0 ? alphabet[random.nextInt(alphabet.length)] : (byte)'x';
+            }
+            ByteBuffer words = WebSocketEventParser.wordView(bytes);
+            for (int from = 0; from <= bytes.length; from++) {
+                assertEquals(naiveIndexOfCrlf(bytes, from, bytes.length),
+                        WebSocketEventParser.indexOfCrlf(bytes, words, from, bytes.length));
+            }
+        }
+    }
+
+    @Test
+    public void testIndexOfCrlfAtWordBoundary() {
+        byte[] bytes = "0123456\r\n9abcdef\r".getBytes();
+        ByteBuffer words = WebSocketEventParser.wordView(bytes);
+        assertEquals(WebSocketEventParser.indexOfCrlf(bytes, words, 0, bytes.length), 7);
+        assertEquals(WebSocketEventParser.indexOfCrlf(bytes, words, 8, bytes.length), -1);
+        assertEquals(WebSocketEventParser.indexOfCrlf(bytes, words, 0, 8), -1);
+    }
+
+    @Test
+    public void testParseType() {
+        byte[] bytes = "xxTEXTxxDISCONNECTxxCUSTOM".getBytes();
+        assertSame(WebSocketEventParser.parseType(bytes, 2, 4), "TEXT");
+        assertSame(WebSocketEventParser.parseType(bytes, 8, 10), "DISCONNECT");
+        assertEquals(WebSocketEventParser.parseType(bytes, 20, 6), "CUSTOM");
+        assertEquals(WebSocketEventParser.parseType(bytes, 2, 3), "TEX");
+    }
+
+    @Test
+    public void testParseHexLength() {
+        assertEquals(WebSocketEventParser.parseHexLength("0".getBytes(), 0, 1), 0);
+        assertEquals(WebSocketEventParser.parseHexLength("fe".getBytes(), 0, 2), 0xfe);
+        assertEquals(WebSocketEventParser.parseHexLength("x4E20x".getBytes(), 1, 4), 20000);
+        assertEquals(WebSocketEventParser.parseHexLength("7fffffff".getBytes(), 0, 8), Integer.MAX_VALUE);
+        String[] invalid = {"", "-1", "+1", "g", "80000000", "1 "};
+        for (String value : invalid) {
+            try {
+                WebSocketEventParser.parseHexLength(value.getBytes(), 0, value.length());
+                fail(value);
+            } catch (IllegalArgumentException e) {
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.fanout.gripcontrol;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WebSocketEventViewTest {
+    @Test
+    public void testWebSocketEventView() throws IOException {
+        WebSocketEventView view = new WebSocketEventView("OPEN");
+        assertEquals(view.getType(), "OPEN");
+        assertFalse(view.hasContent());
+        assertEquals(view.getContentLength(), -1);
+        assertNull(view.getContent());
+        assertNull(view.getContentBytes());
+        assertNull(view.getContentBuffer());
+
+        byte[] body = "xxHelloxx".getBytes("utf-8");
+        view = new WebSocketEventView("TEXT", body, 2, 5);
+        assertTrue(view.hasContent());
+        assertEquals(view.getContentLength(), 5);
+        assertEquals(view.getContent(), "Hello");
+        assertSame(view.getContent(), view.getContent());
+        assertArrayEquals(view.getContentBytes(), "Hello".getBytes("utf-8"));
+        ByteBuffer buffer = view.getContentBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(buffer.remaining(), 5);
+        assertEquals(buffer.get(0), 'H');
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        view.writeContentTo(out);
+        assertArrayEquals(out.toByteArray(), "Hello".getBytes("utf-8"));
+
+        WebSocketEvent event = view.toEvent();
+        assertEquals(event.type, "TEXT");
+        assertEquals(event.content, "Hello");
+    }
+
+    @Test
+    public void testInvalidUtf8Content() {
+        byte[] body = new byte[] {(byte) 0xc3, (byte) 0x28};
+        WebSocketEventView view = new WebSocketEventView("BINARY", body, 0, 2);
+        assertNull(view.getContent());
+        assertNull(view.getContent());
+        assertArrayEquals(view.getContentBytes(), body);
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        new WebSocketEventView("TEXT", new byte[4], 2, 3);
+    }
+
+    @Test
+    public void testDecodeWebSocketEventViews() {
+        byte[] body = "OPEN\r\nTEXT 5\r\nHello\r\nTEXT 0\r\n\r\nCLOSE\r\n".getBytes();
+        List<WebSocketEventView> views = GripControl.decodeWebSocketEventViews(body);
+        assertEquals(views.size(), 4);
+        assertEquals(views.get(0).getType(), "OPEN");
+        assertFalse(views.get(0).hasContent());
+        assertEquals(views.get(1).getType(), "TEXT");
+        assertEquals(views.get(1).getContent(), "Hello");
+        assertEquals(views.get(2).getContent(), "");
+        assertEquals(views.get(3).getType(), "CLOSE");
+        body[14] = 'J';
+        assertArrayEquals(views.get(1).getContentBytes(), "Jello".getBytes());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testDecodeTruncatedContent() {
+        GripControl.decodeWebSocketEventViews("TEXT 5\r\nHel".getBytes());
+    }
+}
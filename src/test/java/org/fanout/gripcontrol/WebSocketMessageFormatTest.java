@@ -2,8 +2,8 @@ package org.fanout.gripcontrol;
 
 import org.junit.Test;
 
-import javax.xml.bind.DatatypeConverter;
 import java.io.UnsupportedEncodingException;
+import java.util.Base64;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
@@ -18,6 +18,6 @@ public class WebSocketMessageFormatTest {
         format = new WebSocketMessageFormat("content".getBytes("utf-8"));
         export = (Map<String, Object>)format.export();
         assertEquals(export.get("content-bin"),
-                DatatypeConverter.printBase64Binary("content".getBytes("utf-8")));
+                Base64.getEncoder().encodeToString("content".getBytes("utf-8")));
     }
 }